@@ -0,0 +1,23 @@
+#!/bin/sh
+# Runs the benchmarks once per thread count and keeps one JMH JSON result file per run,
+# so releases can be compared by diffing or charting results/*.json.
+#
+#   benchmarks/run.sh                       all benchmarks, 1, 4 and 16 threads
+#   THREADS="1 8" benchmarks/run.sh Json    only benchmarks matching "Json"
+set -e
+
+DIR=$(cd "$(dirname "$0")" && pwd)
+JAR="$DIR/target/benchmarks.jar"
+RESULTS="$DIR/results/$(date +%Y%m%d-%H%M%S)"
+THREADS=${THREADS:-"1 4 16"}
+
+if [ ! -f "$JAR" ]; then
+    echo "Build first: mvn install -DskipTests && mvn -f benchmarks/pom.xml package" >&2
+    exit 1
+fi
+
+mkdir -p "$RESULTS"
+for threads in $THREADS; do
+    java -jar "$JAR" -t "$threads" -rf json -rff "$RESULTS/threads-$threads.json" "$@"
+done
+echo "Results written to $RESULTS"
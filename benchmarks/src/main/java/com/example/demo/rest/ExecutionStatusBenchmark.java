@@ -0,0 +1,53 @@
+package com.example.demo.rest;
+
+import com.example.demo.model.TestResult;
+import com.example.demo.model.TestStatus;
+import com.example.demo.service.TestRunnerService.TestSuiteExecution;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** The status aggregation behind {@code GET /api/tests/status/{id}}, by number of results. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionStatusBenchmark {
+
+    private static final TestStatus[] OUTCOMES = {
+            TestStatus.PASSED, TestStatus.PASSED, TestStatus.PASSED, TestStatus.FAILED, TestStatus.SKIPPED};
+
+    @Param({"10", "1000", "100000"})
+    public int results;
+
+    private TestSuiteExecution execution;
+
+    @Setup
+    public void setup() {
+        execution = new TestSuiteExecution("benchmark");
+        List<TestResult> list = new ArrayList<>(results);
+        for (int i = 0; i < results; i++) {
+            list.add(new TestResult("BenchmarkTest", "test" + i, OUTCOMES[i % OUTCOMES.length], null, i));
+        }
+        execution.setResults(list);
+    }
+
+    @Benchmark
+    public Map<String, Object> summarize() {
+        return TestRunnerResource.summarize(execution.getId(), execution);
+    }
+}
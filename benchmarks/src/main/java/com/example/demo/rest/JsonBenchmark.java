@@ -0,0 +1,96 @@
+package com.example.demo.rest;
+
+import com.example.demo.model.TestResult;
+import com.example.demo.model.TestStatus;
+import com.example.demo.model.User;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning a {@link User} and a {@link TestResult} into JSON: JSON-B as the REST
+ * layer does by default, the JSON-P writer behind streaming, and a {@link UserJsonCache} hit.
+ * For comparison, writing and reading a user in the binary format of
+ * {@link UserBinaryProvider}, against reading it with JSON-B.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private Jsonb jsonb;
+    private User user;
+    private TestResult testResult;
+    private UserJsonCache cache;
+    private String userJson;
+    private byte[] userBinary;
+
+    @Setup
+    public void setup() throws IOException {
+        jsonb = JsonbBuilder.create();
+        user = new User(42L, "john_doe", "john@example.com", "John Doe");
+        testResult = new TestResult("UserServiceTest", "testCreateUser", TestStatus.FAILED,
+                "expected: <3> but was: <4>", 12);
+        testResult.setStackTrace("org.opentest4j.AssertionFailedError: expected: <3> but was: <4>\n"
+                + "\tat com.example.demo.UserServiceTest.testCreateUser(UserServiceTest.java:42)");
+        cache = new UserJsonCache(1024 * 1024);
+        cache.get(user);
+        userJson = jsonb.toJson(user);
+        userBinary = userBinary();
+    }
+
+    @Benchmark
+    public String userJsonb() {
+        return jsonb.toJson(user);
+    }
+
+    @Benchmark
+    public byte[] userJsonWriter() {
+        return UserJsonWriter.bytes(user, UserProjection.ALL);
+    }
+
+    @Benchmark
+    public byte[] userJsonCacheHit() {
+        return cache.get(user);
+    }
+
+    @Benchmark
+    public byte[] userBinary() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(128);
+        UserBinaryProvider.writeFrame(new DataOutputStream(output), user);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public User userJsonbRead() {
+        return jsonb.fromJson(userJson, User.class);
+    }
+
+    @Benchmark
+    public User userBinaryRead() throws IOException {
+        return UserBinaryProvider.readFrame(new DataInputStream(new ByteArrayInputStream(userBinary)));
+    }
+
+    @Benchmark
+    public String testResultJsonb() {
+        return jsonb.toJson(testResult);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the {@link UserService} operations against a store of {@code storeSize}
+ * users. The thread count is chosen on the command line ({@code -t}); run.sh sweeps it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int storeSize;
+
+    private UserService userService;
+    private final AtomicLong created = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void populate() {
+        userService = new UserService();
+        // Start from a store of exactly storeSize sequential ids
+        for (long id = 1; id <= 3; id++) {
+            userService.deleteUser(id);
+        }
+        for (int i = 1; i <= storeSize; i++) {
+            userService.createUser(new User(null, "user" + i, "user" + i + "@example.com", "User " + i));
+        }
+    }
+
+    @Benchmark
+    public User getUserById() {
+        return userService.getUserById(randomId()).orElse(null);
+    }
+
+    @Benchmark
+    public User findByUsername() {
+        // Sample users were deleted, so usernames line up with "user" + (id - 3)
+        return userService.findByUsername("user" + (randomId() - 3)).orElse(null);
+    }
+
+    @Benchmark
+    public User updateUser() {
+        long id = randomId();
+        long n = id - 3;
+        return userService.updateUser(id, new User(null, "user" + n, "user" + n + "@example.com", "Updated " + n))
+                .orElse(null);
+    }
+
+    /** Type-ahead search for a prefix of a username, such as "user123" matching user1230 to user1239. */
+    @Benchmark
+    public List<User> searchPrefix() {
+        String username = "user" + (randomId() - 3);
+        return userService.search(username.substring(0, Math.max(5, username.length() - 1)), 10);
+    }
+
+    /** Search with two letters swapped, which only the typo fallback can answer. */
+    @Benchmark
+    public List<User> searchWithTypo() {
+        return userService.search("uesr" + (randomId() - 3), 10);
+    }
+
+    /** A create followed by a delete of the same user, so the store size stays constant. */
+    @Benchmark
+    public boolean createAndDeleteUser() {
+        long n = created.incrementAndGet();
+        User user = userService.createUser(new User(null, "bench" + n, "bench" + n + "@example.com", "Bench " + n));
+        return userService.deleteUser(user.getId());
+    }
+
+    private long randomId() {
+        // Ids 1-3 belonged to the deleted sample users
+        return 4 + ThreadLocalRandom.current().nextInt(storeSize);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.store;
+
+import com.example.demo.model.User;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Memory held by a {@link ShardedUserStore} of short users, per store mode: the Java heap
+ * still in use after a full GC, and the direct or mapped buffers the store reserved. JMH
+ * measures time rather than retained memory, so this is a plain program run from the
+ * benchmarks jar, once per mode because released buffers are only freed after a later GC:
+ * {@code java -cp benchmarks/target/benchmarks.jar com.example.demo.store.UserStoreFootprint
+ * 1000000 offheap}.
+ */
+public final class UserStoreFootprint {
+
+    private static final int CHUNK_BYTES = 64 * 1024 * 1024;
+
+    private UserStoreFootprint() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String type = args.length > 1 ? args[1] : "heap";
+        Path mappedFile = "mapped".equals(type) ? Files.createTempFile("users", ".store") : null;
+        long heapBefore = heapAfterGc();
+        long buffersBefore = bufferBytes();
+        try (ShardedUserStore store = new ShardedUserStore(1,
+                (shard, blocks) -> create(type, mappedFile, blocks, shard))) {
+            for (int i = 0; i < users; i++) {
+                long id = store.nextId();
+                User user = new User(id, "user" + id, "user" + id + "@example.com", "User " + id);
+                store.compute(id, existing -> user, (previous, next) -> { });
+            }
+            long heap = heapAfterGc() - heapBefore;
+            long buffers = bufferBytes() - buffersBefore;
+            System.out.printf("%s, %,d users, %s store: heap %,d MB, off-heap %,d MB%n",
+                    Runtime.version(), store.size(), type, heap >> 20, buffers >> 20);
+        } finally {
+            if (mappedFile != null) {
+                Files.deleteIfExists(mappedFile);
+            }
+        }
+    }
+
+    private static UserStore create(String type, Path mappedFile, IdBlocks blocks, int shard) {
+        try {
+            switch (type) {
+                case "heap":
+                    return new HeapUserStore();
+                case "offheap":
+                case "mapped":
+                    return new OffHeapUserStore(mappedFile, CHUNK_BYTES, blocks, shard);
+                default:
+                    throw new IllegalArgumentException("Unknown store '" + type
+                            + "', expected heap, offheap or mapped");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Heap in use once repeated full GCs no longer free anything. */
+    private static long heapAfterGc() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    private static long bufferBytes() {
+        long bytes = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            bytes += pool.getMemoryUsed();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.store;
+
+import com.example.demo.model.User;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Write throughput of a {@link ShardedUserStore} by shard count. One shard is the layout
+ * before sharding: a single id counter and a single map (or, off heap, a single write
+ * lock). Sweep the thread count to see how writes scale with cores:
+ * {@code THREADS="1 2 4 8 16 32" benchmarks/run.sh UserStoreWrite}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStoreWriteBenchmark {
+
+    @Param({"1", "4", "16", "64"})
+    public int shards;
+
+    @Param({"heap", "offheap"})
+    public String type;
+
+    private ShardedUserStore store;
+
+    @Setup(Level.Trial)
+    public void createStore() {
+        store = new ShardedUserStore(shards, (shard, blocks) -> {
+            try {
+                return "offheap".equals(type)
+                        ? new OffHeapUserStore(null, 16 * 1024 * 1024, blocks, shard)
+                        : new HeapUserStore();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void closeStore() throws IOException {
+        store.close();
+    }
+
+    /** An insert under a new id followed by its delete, so the store size stays constant. */
+    @Benchmark
+    public User createAndDelete() {
+        long id = store.nextId();
+        User user = new User(id, "user" + id, "user" + id + "@example.com", "User " + id);
+        store.compute(id, existing -> user, (previous, next) -> { });
+        return store.compute(id, existing -> null, (previous, next) -> { });
+    }
+
+    /** Only the id allocation, to isolate the counter from the map. */
+    @Benchmark
+    public long nextId() {
+        return store.nextId();
+    }
+}
@@ -0,0 +1,27 @@
+#!/bin/bash
+
+# Builds openliberty-demo:latest from Dockerfile and openliberty-demo:instanton, the same
+# image with a beforeAppStart checkpoint of the server that containers restore from.
+# Uses podman when available, docker otherwise. Run from the repository root.
+set -e
+
+IMAGE="${IMAGE:-openliberty-demo}"
+
+if command -v podman >/dev/null 2>&1; then
+    podman build -t "$IMAGE:latest" .
+    podman build -f Dockerfile.instanton -t "$IMAGE:instanton" \
+        --build-arg BASE_IMAGE="$IMAGE:latest" \
+        --cap-add=CHECKPOINT_RESTORE --cap-add=SYS_PTRACE --cap-add=SETPCAP \
+        --security-opt seccomp=unconfined .
+else
+    # docker build cannot grant the capabilities CRIU needs, so checkpoint a container
+    # and commit it; the server exits once the checkpoint is written
+    docker build -t "$IMAGE:latest" .
+    docker rm -f "$IMAGE-checkpoint" >/dev/null 2>&1 || true
+    docker run --name "$IMAGE-checkpoint" --privileged \
+        --env WLP_CHECKPOINT=beforeAppStart "$IMAGE:latest"
+    docker commit "$IMAGE-checkpoint" "$IMAGE:instanton"
+    docker rm "$IMAGE-checkpoint" >/dev/null
+fi
+
+echo "Built $IMAGE:latest and $IMAGE:instanton"
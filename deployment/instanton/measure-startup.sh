@@ -0,0 +1,59 @@
+#!/bin/bash
+
+# Measures how long a container takes from `docker run` to its first successful
+# /api/health response, for each image given (default: the normal and InstantOn images).
+#
+#   deployment/instanton/measure-startup.sh [image...]
+#
+# Set RUNS to repeat each measurement (default 3) and ENGINE=podman to use podman. The
+# container gets the capabilities a restore needs; without them, or when restore fails,
+# Liberty falls back to a normal start, which shows up here as no improvement.
+set -e
+
+ENGINE="${ENGINE:-docker}"
+RUNS="${RUNS:-3}"
+PORT="${PORT:-19080}"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-180}"
+URL="http://localhost:$PORT/openliberty-demo/api/health"
+
+if [ $# -eq 0 ]; then
+    set -- openliberty-demo:latest openliberty-demo:instanton
+fi
+
+now_millis() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+measure() {
+    local image=$1
+    local name="startup-measure-$$"
+    local start
+    start=$(now_millis)
+    "$ENGINE" run -d --rm --name "$name" -p "$PORT:9080" \
+        --cap-add=CHECKPOINT_RESTORE --cap-add=SETPCAP \
+        --security-opt seccomp=unconfined "$image" >/dev/null
+
+    local deadline=$(( start + TIMEOUT_SECONDS * 1000 ))
+    until curl -sf -o /dev/null "$URL"; do
+        if [ "$(now_millis)" -gt "$deadline" ]; then
+            "$ENGINE" rm -f "$name" >/dev/null
+            echo "$image: no healthy response within ${TIMEOUT_SECONDS}s" >&2
+            return 1
+        fi
+        sleep 0.05
+    done
+    local elapsed=$(( $(now_millis) - start ))
+
+    local restored="no"
+    if "$ENGINE" logs "$name" 2>&1 | grep -q "CWWKC0452I"; then
+        restored="yes"
+    fi
+    "$ENGINE" rm -f "$name" >/dev/null
+    echo "$image: ${elapsed} ms to first healthy /api/health (restored: $restored)"
+}
+
+for image in "$@"; do
+    for run in $(seq "$RUNS"); do
+        measure "$image"
+    done
+done
@@ -0,0 +1,68 @@
+package com.example.demo.config;
+
+import com.example.demo.rest.UserJsonCache;
+import com.example.demo.service.TestRunnerService;
+import com.example.demo.service.UserService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.Startup;
+import jakarta.inject.Inject;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+/**
+ * Registers gauges for the state the services already track: store size, index and JSON
+ * cache hits, and the test run queue. Values are read when {@code /metrics} is scraped;
+ * nothing is counted twice. Totals since start are gauges because MicroProfile Metrics has
+ * no counter backed by a function, and behave like counters in queries.
+ */
+@ApplicationScoped
+public class ApplicationMetrics {
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Inject
+    private UserService userService;
+
+    @Inject
+    private UserJsonCache jsonCache;
+
+    @Inject
+    private TestRunnerService testRunnerService;
+
+    void register(@Observes Startup startup) {
+        gauge("users.store.size", "Users in the store", MetricUnits.NONE, userService::getUserCount);
+        gauge("users.store.bytes", "Estimated memory held by the user store", MetricUnits.BYTES,
+                userService::getEstimatedStoreBytes);
+        gauge("users.index.lookups", "Username and email lookups since start", MetricUnits.NONE,
+                userService::getIndexLookups);
+        gauge("users.index.hits", "Username and email lookups since start that found a user", MetricUnits.NONE,
+                userService::getIndexHits);
+
+        for (String stat : new String[] {"hits", "misses", "evictions", "entries"}) {
+            gauge("users.jsonCache." + stat, "User JSON cache " + stat, MetricUnits.NONE,
+                    () -> stat(jsonCache.getStats(), stat));
+        }
+        gauge("users.jsonCache.bytes", "Memory held by the user JSON cache", MetricUnits.BYTES,
+                () -> stat(jsonCache.getStats(), "bytes"));
+
+        gauge("tests.executor.active", "Test runs executing", MetricUnits.NONE,
+                () -> stat(testRunnerService.getExecutorStats(), "activeRuns"));
+        gauge("tests.executor.queued", "Test runs waiting for a runner", MetricUnits.NONE,
+                () -> stat(testRunnerService.getExecutorStats(), "queuedRuns"));
+        gauge("tests.executor.rejected", "Test runs rejected since start because the queue was full",
+                MetricUnits.NONE, () -> stat(testRunnerService.getExecutorStats(), "rejectedRuns"));
+    }
+
+    private <T extends Number> void gauge(String name, String description, String unit, Supplier<T> value) {
+        metrics.gauge(Metadata.builder().withName(name).withDescription(description).withUnit(unit).build(), value);
+    }
+
+    private static Number stat(Map<String, Object> stats, String key) {
+        return (Number) stats.get(key);
+    }
+}
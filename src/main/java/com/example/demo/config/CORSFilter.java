@@ -1,20 +1,124 @@
 package com.example.demo.config;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.HttpMethod;
 import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.container.ContainerResponseContext;
 import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.PreMatching;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.Provider;
-import java.io.IOException;
+import java.util.Map;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+/**
+ * Cross-origin access to the API, following the {@link CORSPolicy} built from the
+ * {@code cors.*} settings. Preflight requests are answered here, before resource matching,
+ * with a long {@code Access-Control-Max-Age} so browsers cache the answer instead of
+ * repeating the preflight. Other requests from an allowed origin get the CORS headers on
+ * their response; requests without an {@code Origin} header get none, so same-origin and
+ * non-browser traffic pays nothing for CORS. Since that makes every response depend on the
+ * {@code Origin} header, all of them carry {@code Vary: Origin}, and so do preflight answers
+ * when specific origins are configured. Allowing credentials together with any origin
+ * ({@code *}) fails at startup.
+ */
 @Provider
-public class CORSFilter implements ContainerResponseFilter {
+@PreMatching
+public class CORSFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String PREFLIGHT_PROPERTY = CORSFilter.class.getName() + ".preflight";
+
+    @Inject
+    @ConfigProperty(name = "cors.allowed-origins", defaultValue = "*")
+    private String allowedOrigins;
+
+    @Inject
+    @ConfigProperty(name = "cors.allowed-methods", defaultValue = "GET, POST, PUT, DELETE, OPTIONS, HEAD")
+    private String allowedMethods;
+
+    @Inject
+    @ConfigProperty(name = "cors.allowed-headers",
+            defaultValue = "Origin, Content-Type, Accept, Authorization, If-Match, If-None-Match")
+    private String allowedHeaders;
+
+    @Inject
+    @ConfigProperty(name = "cors.exposed-headers", defaultValue = "ETag, Link, Location")
+    private String exposedHeaders;
+
+    @Inject
+    @ConfigProperty(name = "cors.allow-credentials", defaultValue = "false")
+    private boolean allowCredentials;
+
+    @Inject
+    @ConfigProperty(name = "cors.max-age-seconds", defaultValue = "86400")
+    private long maxAgeSeconds;
+
+    private CORSPolicy policy;
+
+    public CORSFilter() {
+    }
+
+    /** A filter with a fixed policy instead of one built from configuration. */
+    public CORSFilter(CORSPolicy policy) {
+        this.policy = policy;
+    }
+
+    @PostConstruct
+    void init() {
+        policy = new CORSPolicy(allowedOrigins, allowedMethods, allowedHeaders, exposedHeaders,
+                allowCredentials, maxAgeSeconds);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String origin = requestContext.getHeaderString("Origin");
+        if (origin == null
+                || !HttpMethod.OPTIONS.equals(requestContext.getMethod())
+                || requestContext.getHeaderString("Access-Control-Request-Method") == null) {
+            return;
+        }
+        requestContext.setProperty(PREFLIGHT_PROPERTY, Boolean.TRUE);
+        String allowOrigin = policy.allowOrigin(origin);
+        Response.ResponseBuilder preflight;
+        if (allowOrigin == null) {
+            preflight = Response.status(Response.Status.FORBIDDEN);
+        } else {
+            preflight = Response.noContent();
+            for (Map.Entry<String, String> header : policy.getPreflightHeaders().entrySet()) {
+                preflight.header(header.getKey(), header.getValue());
+            }
+            preflight.header("Access-Control-Allow-Origin", allowOrigin);
+        }
+        if (policy.variesByOrigin()) {
+            preflight.header(HttpHeaders.VARY, "Origin");
+        }
+        requestContext.abortWith(preflight.build());
+    }
 
     @Override
-    public void filter(ContainerRequestContext requestContext,
-                      ContainerResponseContext responseContext) throws IOException {
-        responseContext.getHeaders().add("Access-Control-Allow-Origin", "*");
-        responseContext.getHeaders().add("Access-Control-Allow-Credentials", "true");
-        responseContext.getHeaders().add("Access-Control-Allow-Headers", "origin, content-type, accept, authorization");
-        responseContext.getHeaders().add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS, HEAD");
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        // Preflight answers already carry their headers
+        if (requestContext.getProperty(PREFLIGHT_PROPERTY) != null) {
+            return;
+        }
+        MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+        // With or without CORS headers, the response depends on the Origin header
+        headers.add(HttpHeaders.VARY, "Origin");
+        String origin = requestContext.getHeaderString("Origin");
+        if (origin == null) {
+            return;
+        }
+        String allowOrigin = policy.allowOrigin(origin);
+        if (allowOrigin == null) {
+            return;
+        }
+        for (Map.Entry<String, String> header : policy.getResponseHeaders().entrySet()) {
+            headers.putSingle(header.getKey(), header.getValue());
+        }
+        headers.putSingle("Access-Control-Allow-Origin", allowOrigin);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package com.example.demo.config;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Which cross-origin requests are allowed and the headers that say so. Everything except
+ * the allowed origin is fixed by configuration, so the header values are built once and
+ * shared by every response. Origins are compared without regard to case, against a set of
+ * the configured origins; {@code *} allows any origin.
+ * <p>
+ * With {@code *} every origin is answered with {@code *}, so the answer does not depend on
+ * which origin asked. Credentials cannot be combined with it: that would let any site make
+ * authenticated calls. With a list of origins an allowed origin is echoed back. Requests
+ * without an {@code Origin} header are not cross-origin and get no CORS headers at all.
+ */
+public final class CORSPolicy {
+
+    private final boolean anyOrigin;
+    private final Set<String> origins;
+    private final Map<String, String> preflightHeaders;
+    private final Map<String, String> responseHeaders;
+
+    /**
+     * @param origins        comma separated origins such as {@code https://app.example.com},
+     *                       or {@code *}
+     * @param methods        comma separated methods allowed in preflight requests
+     * @param headers        comma separated request headers allowed in preflight requests
+     * @param exposedHeaders comma separated response headers scripts may read
+     * @param maxAgeSeconds  how long browsers may cache a preflight answer
+     * @throws IllegalArgumentException if credentials are allowed for any origin
+     */
+    public CORSPolicy(String origins, String methods, String headers, String exposedHeaders,
+                      boolean credentials, long maxAgeSeconds) {
+        Set<String> allowed = Arrays.stream(origins.split(","))
+                .map(origin -> origin.trim().toLowerCase(Locale.ROOT))
+                .filter(origin -> !origin.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.anyOrigin = allowed.contains("*");
+        this.origins = allowed;
+        if (anyOrigin && credentials) {
+            throw new IllegalArgumentException(
+                    "Credentials cannot be allowed for any origin (*); list the allowed origins instead");
+        }
+
+        Map<String, String> common = new HashMap<>();
+        if (credentials) {
+            common.put("Access-Control-Allow-Credentials", "true");
+        }
+        Map<String, String> preflight = new HashMap<>(common);
+        preflight.put("Access-Control-Allow-Methods", list(methods));
+        preflight.put("Access-Control-Allow-Headers", list(headers));
+        preflight.put("Access-Control-Max-Age", Long.toString(maxAgeSeconds));
+        this.preflightHeaders = Map.copyOf(preflight);
+
+        Map<String, String> response = new HashMap<>(common);
+        String exposed = list(exposedHeaders);
+        if (!exposed.isEmpty()) {
+            response.put("Access-Control-Expose-Headers", exposed);
+        }
+        this.responseHeaders = Map.copyOf(response);
+    }
+
+    public boolean allows(String origin) {
+        return origin != null && (anyOrigin || origins.contains(origin.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * The {@code Access-Control-Allow-Origin} value for a request from {@code origin}, or null
+     * when there is no origin or it is not allowed.
+     */
+    public String allowOrigin(String origin) {
+        if (!allows(origin)) {
+            return null;
+        }
+        return anyOrigin ? "*" : origin;
+    }
+
+    /**
+     * Whether the answer to a cross-origin request depends on which origin sent it, so that
+     * preflight answers must carry {@code Vary: Origin} too.
+     */
+    public boolean variesByOrigin() {
+        return !anyOrigin;
+    }
+
+    /** Headers of an answer to a preflight request from an allowed origin, besides the origin. */
+    public Map<String, String> getPreflightHeaders() {
+        return preflightHeaders;
+    }
+
+    /** Headers of any other response to an allowed origin, besides the origin. */
+    public Map<String, String> getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    private static String list(String values) {
+        return Arrays.stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a response body once it outgrows a threshold. The first {@code threshold}
+ * bytes are held back; a body that ends within them is written unchanged, and only when
+ * more follow is the body compressed, with {@code beforeCompressing} run first so the
+ * caller can still set headers. The deflater is borrowed from a {@link DeflaterPool} and
+ * must be handed back with {@link #release()}.
+ * <p>
+ * {@link Encoding#GZIP} wraps raw deflate output in the gzip header and CRC-32 trailer;
+ * {@link Encoding#DEFLATE} is zlib framing, which is what HTTP calls "deflate". Time spent
+ * inside the deflater is added up apart from time spent writing to {@code out}, so the CPU
+ * cost of compressing can be told apart from a slow client.
+ */
+public final class CompressingOutputStream extends OutputStream {
+
+    public enum Encoding {
+        GZIP("gzip"),
+        DEFLATE("deflate");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        /** The {@code Content-Encoding} value. */
+        public String token() {
+            return token;
+        }
+    }
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream out;
+    private final Encoding encoding;
+    private final DeflaterPool pool;
+    private final Runnable beforeCompressing;
+    private final byte[] pending;
+    private final byte[] buffer = new byte[8192];
+    private final byte[] single = new byte[1];
+    private final CRC32 crc = new CRC32();
+
+    private int pendingLength;
+    private Deflater deflater;
+    private boolean compressed;
+    private boolean finished;
+    private long bytesIn;
+    private long bytesOut;
+    private long deflateNanos;
+
+    public CompressingOutputStream(OutputStream out, Encoding encoding, DeflaterPool pool, int threshold,
+                                   Runnable beforeCompressing) {
+        this.out = out;
+        this.encoding = encoding;
+        this.pool = pool;
+        this.pending = new byte[threshold];
+        this.beforeCompressing = beforeCompressing;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream already finished");
+        }
+        bytesIn += len;
+        if (!compressed) {
+            if (pendingLength + len <= pending.length) {
+                System.arraycopy(b, off, pending, pendingLength, len);
+                pendingLength += len;
+                return;
+            }
+            startCompressing();
+        }
+        deflate(b, off, len);
+    }
+
+    private void startCompressing() throws IOException {
+        beforeCompressing.run();
+        compressed = true;
+        deflater = pool.borrow();
+        if (encoding == Encoding.GZIP) {
+            out.write(GZIP_HEADER);
+            bytesOut += GZIP_HEADER.length;
+        }
+        deflate(pending, 0, pendingLength);
+        pendingLength = 0;
+    }
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        if (encoding == Encoding.GZIP) {
+            crc.update(b, off, len);
+        }
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        long start = System.nanoTime();
+        int length = deflater.deflate(buffer);
+        deflateNanos += System.nanoTime() - start;
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            bytesOut += length;
+        }
+    }
+
+    /**
+     * Passes the flush on once compressing. Before that the held back bytes stay held back,
+     * since writing them would decide against compression for the whole body.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (compressed) {
+            out.flush();
+        }
+    }
+
+    /** Writes what is left of the body, without closing {@code out}. */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (!compressed) {
+            out.write(pending, 0, pendingLength);
+            bytesOut = pendingLength;
+            return;
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain();
+        }
+        if (encoding == Encoding.GZIP) {
+            writeIntLE((int) crc.getValue());
+            writeIntLE((int) deflater.getBytesRead());
+        }
+    }
+
+    private void writeIntLE(int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+        bytesOut += Integer.BYTES;
+    }
+
+    /** Hands the deflater back to the pool; call once the body is done or abandoned. */
+    public void release() {
+        if (deflater != null) {
+            pool.release(deflater);
+            deflater = null;
+        }
+    }
+
+    /** Finishes the body and releases the deflater; {@code out} stays open for the container. */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            release();
+        }
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getDeflateNanos() {
+        return deflateNanos;
+    }
+}
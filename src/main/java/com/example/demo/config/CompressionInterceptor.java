@@ -0,0 +1,232 @@
+package com.example.demo.config;
+
+import com.example.demo.config.CompressingOutputStream.Encoding;
+import com.example.demo.rest.UserBinaryProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Compresses REST response bodies with gzip, or deflate, when the request's
+ * {@code Accept-Encoding} allows it. Only bodies larger than {@code http.compression.min-bytes}
+ * are compressed, which is decided while the body is written (see
+ * {@link CompressingOutputStream}), so streamed listings and growing test output are covered
+ * without knowing their size up front. Server-sent events, bodies that already have a
+ * {@code Content-Encoding} and media types that do not compress well are left alone.
+ * <p>
+ * A compressed body is a different representation from the uncompressed one, so its
+ * {@code ETag} gets the encoding appended ({@code "42-7-3"} becomes {@code "42-7-3-gzip"}).
+ * Conditional requests may send either form back; {@link #identityTag(String)} maps the
+ * compressed form to the tag it came from.
+ * <p>
+ * Per encoding, {@code http.compression.bytes.in} and {@code http.compression.bytes.out}
+ * count body bytes before and after compression, {@code http.compression.ratio} records each
+ * body's compressed size as a percentage of the original and {@code http.compression.time}
+ * the time spent in the deflater.
+ */
+@Provider
+public class CompressionInterceptor implements WriterInterceptor {
+
+    // Idle deflaters kept per encoding; roughly the number of responses compressed at once
+    private static final int MAX_IDLE_DEFLATERS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private static final Metadata BYTES_IN = Metadata.builder()
+            .withName("http.compression.bytes.in")
+            .withDescription("Response body bytes before compression")
+            .withUnit(MetricUnits.BYTES)
+            .build();
+    private static final Metadata BYTES_OUT = Metadata.builder()
+            .withName("http.compression.bytes.out")
+            .withDescription("Response body bytes after compression")
+            .withUnit(MetricUnits.BYTES)
+            .build();
+    private static final Metadata RATIO = Metadata.builder()
+            .withName("http.compression.ratio")
+            .withDescription("Compressed size of each compressed response body, as a percentage of its original size")
+            .withUnit(MetricUnits.PERCENT)
+            .build();
+    private static final Metadata TIME = Metadata.builder()
+            .withName("http.compression.time")
+            .withDescription("Time spent compressing each response body, excluding writes to the client")
+            .build();
+
+    @Inject
+    private MetricRegistry metrics;
+
+    // Bodies up to this size are sent as they are; negative disables compression
+    @Inject
+    @ConfigProperty(name = "http.compression.min-bytes", defaultValue = "1024")
+    private int minBytes = 1024;
+
+    // 1 (fastest) to 9 (smallest)
+    @Inject
+    @ConfigProperty(name = "http.compression.level", defaultValue = "6")
+    private int level = 6;
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    private DeflaterPool gzipDeflaters;
+    private DeflaterPool zlibDeflaters;
+
+    @PostConstruct
+    void init() {
+        gzipDeflaters = new DeflaterPool(level, true, MAX_IDLE_DEFLATERS);
+        zlibDeflaters = new DeflaterPool(level, false, MAX_IDLE_DEFLATERS);
+    }
+
+    @PreDestroy
+    void close() {
+        gzipDeflaters.close();
+        zlibDeflaters.close();
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if (minBytes < 0 || headers.containsKey(HttpHeaders.CONTENT_ENCODING) || !compressible(context.getMediaType())) {
+            context.proceed();
+            return;
+        }
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        Encoding encoding = negotiate(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            context.proceed();
+            return;
+        }
+
+        CompressingOutputStream body = new CompressingOutputStream(context.getOutputStream(), encoding,
+                encoding == Encoding.GZIP ? gzipDeflaters : zlibDeflaters, minBytes, () -> {
+                    // Nothing has reached the client yet, so the headers can still change
+                    headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding.token());
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                    Object tag = headers.getFirst(HttpHeaders.ETAG);
+                    if (tag != null) {
+                        headers.putSingle(HttpHeaders.ETAG, encodedTag(tag, encoding));
+                    }
+                });
+        context.setOutputStream(body);
+        try {
+            context.proceed();
+            body.finish();
+        } finally {
+            body.release();
+        }
+        if (body.isCompressed()) {
+            record(encoding, body);
+        }
+    }
+
+    private void record(Encoding encoding, CompressingOutputStream body) {
+        Tag tag = new Tag("encoding", encoding.token());
+        metrics.counter(BYTES_IN, tag).inc(body.getBytesIn());
+        metrics.counter(BYTES_OUT, tag).inc(body.getBytesOut());
+        metrics.histogram(RATIO, tag).update(body.getBytesOut() * 100 / Math.max(1, body.getBytesIn()));
+        metrics.timer(TIME, tag).update(Duration.ofNanos(body.getDeflateNanos()));
+    }
+
+    /** The ETag of a body compressed with {@code encoding}, given the uncompressed body's. */
+    public static Object encodedTag(Object tag, Encoding encoding) {
+        String suffix = "-" + encoding.token();
+        if (tag instanceof EntityTag entityTag) {
+            return new EntityTag(entityTag.getValue() + suffix, entityTag.isWeak());
+        }
+        String value = tag.toString();
+        return value.endsWith("\"") ? value.substring(0, value.length() - 1) + suffix + "\"" : value;
+    }
+
+    /**
+     * A quoted entity tag from a request with the suffix of a compressed body removed, so it
+     * can be compared with the tag of the uncompressed body. Other tags are returned as they are.
+     */
+    public static String identityTag(String tag) {
+        if (tag.endsWith("\"")) {
+            String value = tag.substring(0, tag.length() - 1);
+            for (Encoding encoding : Encoding.values()) {
+                if (value.endsWith("-" + encoding.token())) {
+                    return value.substring(0, value.length() - encoding.token().length() - 1) + "\"";
+                }
+            }
+        }
+        return tag;
+    }
+
+    /**
+     * The encoding to use for an {@code Accept-Encoding} header, gzip before deflate unless
+     * the client prefers deflate, or null when neither is acceptable.
+     */
+    public static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+                case "deflate" -> deflate = Math.max(deflate, quality);
+                case "*" -> any = Math.max(any, quality);
+                default -> {
+                    // Not an encoding offered here
+                }
+            }
+        }
+        // "*" stands for every coding not listed by name
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? Encoding.GZIP : Encoding.DEFLATE;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q')
+                    && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /** Text, JSON, XML and the binary user format; not event streams or already compressed media. */
+    static boolean compressible(MediaType type) {
+        if (type == null) {
+            return false;
+        }
+        String subtype = type.getSubtype().toLowerCase(Locale.ROOT);
+        if (type.isCompatible(MediaType.SERVER_SENT_EVENTS_TYPE)) {
+            return false;
+        }
+        return "text".equalsIgnoreCase(type.getType())
+                || subtype.equals("json") || subtype.endsWith("+json") || subtype.equals("x-ndjson")
+                || subtype.equals("xml") || subtype.endsWith("+xml") || subtype.equals("javascript")
+                || (type.getType() + "/" + subtype).equalsIgnoreCase(UserBinaryProvider.MEDIA_TYPE);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Idle {@link Deflater}s kept for reuse. A deflater holds a few hundred kilobytes of native
+ * zlib state that is only freed by {@link Deflater#end()} or, much later, by the cleaner, so
+ * creating one per response adds native allocation and memory churn to every request.
+ * Deflaters are borrowed for one response and handed back reset. Beyond {@code maxIdle} a
+ * returned deflater is ended instead of kept, which bounds the native memory held while
+ * traffic is low.
+ */
+public final class DeflaterPool {
+
+    private final int level;
+    private final boolean nowrap;
+    private final BlockingQueue<Deflater> idle;
+    private volatile boolean closed;
+
+    /**
+     * @param nowrap raw deflate output without the zlib header and checksum, as gzip
+     *               framing requires
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxIdle) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    public Deflater borrow() {
+        Deflater deflater = idle.poll();
+        return deflater != null ? deflater : new Deflater(level, nowrap);
+    }
+
+    public void release(Deflater deflater) {
+        deflater.reset();
+        if (closed || !idle.offer(deflater)) {
+            deflater.end();
+        } else if (closed) {
+            // Closed while it was being offered; make sure it does not stay behind
+            close();
+        }
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /** Ends the idle deflaters; deflaters still borrowed are ended when they come back. */
+    public void close() {
+        closed = true;
+        Deflater deflater;
+        while ((deflater = idle.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.config;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.PreMatching;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+
+/**
+ * Times every REST request into the {@code http.server.requests} timer, tagged with the
+ * HTTP method, the endpoint's path template (so {@code /users/42} and {@code /users/7}
+ * share one series) and the response status. The timer starts before resource matching
+ * and ahead of the other filters, so requests that match no endpoint, and preflight requests
+ * answered by {@link CORSFilter}, are counted too, tagged {@code UNMATCHED}.
+ *
+ * <p>Response filters run before the entity is written, so a response with an entity is timed
+ * when the writer interceptor around its serialization, streaming and compression returns;
+ * only responses without an entity stop the timer in the response filter.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION - 100)
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter,
+        WriterInterceptor {
+
+    private static final String START_PROPERTY = RequestMetricsFilter.class.getName() + ".start";
+
+    private static final String TIMER_PROPERTY = RequestMetricsFilter.class.getName() + ".timer";
+
+    private static final Metadata REQUESTS = Metadata.builder()
+            .withName("http.server.requests")
+            .withDescription("Time to handle REST requests, by method, endpoint and status")
+            .build();
+
+    private static final Map<Method, String> ENDPOINTS = new ConcurrentHashMap<>();
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object start = requestContext.getProperty(START_PROPERTY);
+        if (!(start instanceof Long)) {
+            return;
+        }
+        Method method = resourceInfo.getResourceMethod();
+        String endpoint = method == null ? "UNMATCHED"
+                : ENDPOINTS.computeIfAbsent(method, m -> endpoint(resourceInfo.getResourceClass(), m));
+        Timer timer = metrics.timer(REQUESTS,
+                new Tag("method", requestContext.getMethod()),
+                new Tag("endpoint", endpoint),
+                new Tag("status", Integer.toString(responseContext.getStatus())));
+        if (responseContext.hasEntity()) {
+            requestContext.setProperty(TIMER_PROPERTY, timer);
+        } else {
+            stop(timer, (Long) start);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        } finally {
+            Object timer = context.getProperty(TIMER_PROPERTY);
+            Object start = context.getProperty(START_PROPERTY);
+            if (timer instanceof Timer && start instanceof Long) {
+                context.removeProperty(TIMER_PROPERTY);
+                stop((Timer) timer, (Long) start);
+            }
+        }
+    }
+
+    private static void stop(Timer timer, long start) {
+        timer.update(Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /** The path template of a resource method, e.g. {@code /users/{id}}. */
+    static String endpoint(Class<?> resourceClass, Method method) {
+        StringBuilder path = new StringBuilder();
+        append(path, resourceClass.getAnnotation(Path.class));
+        append(path, method.getAnnotation(Path.class));
+        return path.length() == 0 ? "/" : path.toString();
+    }
+
+    private static void append(StringBuilder path, Path segment) {
+        if (segment == null) {
+            return;
+        }
+        String value = segment.value();
+        if (!value.startsWith("/")) {
+            path.append('/');
+        }
+        path.append(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.demo.health;
+
+import com.example.demo.service.TestRunnerService;
+import com.example.demo.service.UserService;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponse.Status;
+import org.eclipse.microprofile.health.Liveness;
+import org.eclipse.microprofile.health.Readiness;
+import org.eclipse.microprofile.health.Startup;
+
+/**
+ * Computes the node's health on a background thread and hands out the last result, so a
+ * health probe only reads a field however often it polls. The checks, served by
+ * MicroProfile Health on {@code /health/started}, {@code /health/ready} and
+ * {@code /health/live}:
+ * <ul>
+ * <li>{@code user-store} (startup and readiness): down until the store has loaded its
+ * data, which includes replaying the persistence log.</li>
+ * <li>{@code test-executor} (readiness): always up, since a full queue of admin test runs
+ * says nothing about serving users and must not take the node out of rotation. Its data
+ * reports the queue and {@code saturated} once it is filled to
+ * {@code health.executor.max-queued-ratio}, when new runs would be turned away.</li>
+ * <li>{@code heap} (liveness): down while the heap still in use after the last garbage
+ * collection is at {@code health.heap.max-after-gc-ratio} of the maximum, a sign the
+ * JVM is close to running out of memory. Also down if the background refresh has
+ * stalled for ten intervals.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class HealthMonitor {
+
+    private static final Logger LOGGER = Logger.getLogger(HealthMonitor.class.getName());
+
+    private static final String USER_STORE = "user-store";
+    private static final String TEST_EXECUTOR = "test-executor";
+    private static final String HEAP = "heap";
+    private static final int STALLED_INTERVALS = 10;
+
+    @Inject
+    private UserService userService;
+
+    @Inject
+    private TestRunnerService testRunnerService;
+
+    @Inject
+    @ConfigProperty(name = "health.check-interval-ms", defaultValue = "1000")
+    private long checkIntervalMillis = 1000;
+
+    @Inject
+    @ConfigProperty(name = "health.heap.max-after-gc-ratio", defaultValue = "0.95")
+    private double maxHeapAfterGcRatio = 0.95;
+
+    @Inject
+    @ConfigProperty(name = "health.executor.max-queued-ratio", defaultValue = "1.0")
+    private double maxQueuedRatio = 1.0;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean storeLoaded;
+    private volatile HealthCheckResponse storeStatus = response(USER_STORE, false, Map.of("state", "loading"));
+    private volatile HealthCheckResponse executorStatus = response(TEST_EXECUTOR, true, Map.of());
+    private volatile HealthCheckResponse heapStatus = response(HEAP, true, Map.of());
+    private volatile long lastRefreshNanos = System.nanoTime();
+
+    public HealthMonitor() {
+    }
+
+    /** A monitor outside CDI; call {@link #loadStore()} and {@link #refresh()} yourself. */
+    public HealthMonitor(UserService userService, TestRunnerService testRunnerService,
+                         double maxHeapAfterGcRatio, double maxQueuedRatio) {
+        this.userService = userService;
+        this.testRunnerService = testRunnerService;
+        this.maxHeapAfterGcRatio = maxHeapAfterGcRatio;
+        this.maxQueuedRatio = maxQueuedRatio;
+    }
+
+    void start(@Observes jakarta.enterprise.event.Startup startup) {
+        // Loading can take as long as the log replay; it must not hold up the refreshes
+        Thread loader = new Thread(this::loadStore, "user-store-loader");
+        loader.setDaemon(true);
+        loader.start();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /** Forces the user store to load, blocking until it has; the store is ready after. */
+    public void loadStore() {
+        long start = System.nanoTime();
+        try {
+            int users = userService.getUserCount();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            storeStatus = response(USER_STORE, true, Map.of("users", users, "loadMillis", millis));
+            storeLoaded = true;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "User store failed to load", e);
+            storeStatus = response(USER_STORE, false, Map.of("state", "failed", "error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    /** Recomputes the executor and heap checks; run by the background thread. */
+    public void refresh() {
+        try {
+            if (storeLoaded) {
+                storeStatus = response(USER_STORE, true, Map.of("users", userService.getUserCount()));
+            }
+            executorStatus = checkExecutor();
+            heapStatus = checkHeap();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Health refresh failed", e);
+        } finally {
+            lastRefreshNanos = System.nanoTime();
+        }
+    }
+
+    private HealthCheckResponse checkExecutor() {
+        Map<String, Object> stats = testRunnerService.getExecutorStats();
+        int queued = ((Number) stats.get("queuedRuns")).intValue();
+        int capacity = ((Number) stats.get("queueCapacity")).intValue();
+        boolean saturated = queued >= maxQueuedRatio * capacity;
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("activeRuns", stats.get("activeRuns"));
+        data.put("queuedRuns", queued);
+        data.put("queueCapacity", capacity);
+        data.put("saturated", saturated);
+        return response(TEST_EXECUTOR, true, data);
+    }
+
+    private HealthCheckResponse checkHeap() {
+        // Usage right after the last collection ignores garbage that is about to be freed
+        long usedAfterGc = 0;
+        long max = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            MemoryUsage usage = pool.getUsage();
+            usedAfterGc += afterGc != null ? afterGc.getUsed() : usage.getUsed();
+            max += usage.getMax() >= 0 ? usage.getMax() : usage.getCommitted();
+        }
+        double ratio = max == 0 ? 0 : (double) usedAfterGc / max;
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("usedAfterGcBytes", usedAfterGc);
+        data.put("maxBytes", max);
+        data.put("usedAfterGcRatio", Math.round(ratio * 1000) / 1000.0);
+        return response(HEAP, ratio < maxHeapAfterGcRatio, data);
+    }
+
+    private static HealthCheckResponse response(String name, boolean up, Map<String, Object> data) {
+        return new HealthCheckResponse(name, up ? Status.UP : Status.DOWN,
+                data.isEmpty() ? Optional.empty() : Optional.of(data));
+    }
+
+    public HealthCheckResponse getStoreStatus() {
+        return storeStatus;
+    }
+
+    public HealthCheckResponse getExecutorStatus() {
+        return executorStatus;
+    }
+
+    public HealthCheckResponse getHeapStatus() {
+        long stalledNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis * STALLED_INTERVALS);
+        if (scheduler != null && System.nanoTime() - lastRefreshNanos > stalledNanos) {
+            return response(HEAP, false, Map.of("state", "health refresh stalled"));
+        }
+        return heapStatus;
+    }
+
+    /** Whether the node can serve user traffic: its store is loaded. */
+    public boolean isReady() {
+        return storeStatus.getStatus() == Status.UP;
+    }
+
+    /** Whether the node is healthy enough to keep running rather than be restarted. */
+    public boolean isLive() {
+        return getHeapStatus().getStatus() == Status.UP;
+    }
+
+    @Produces
+    @Startup
+    HealthCheck storeStarted() {
+        return this::getStoreStatus;
+    }
+
+    @Produces
+    @Readiness
+    HealthCheck storeReady() {
+        return this::getStoreStatus;
+    }
+
+    @Produces
+    @Readiness
+    HealthCheck executorReady() {
+        return this::getExecutorStatus;
+    }
+
+    @Produces
+    @Liveness
+    HealthCheck heapLive() {
+        return this::getHeapStatus;
+    }
+}
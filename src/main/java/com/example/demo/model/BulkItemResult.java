@@ -0,0 +1,40 @@
+package com.example.demo.model;
+
+/**
+ * Outcome of one bulk operation. {@code status} is the HTTP status the equivalent single
+ * request would have returned.
+ */
+public class BulkItemResult {
+    private int index;
+    private String op;
+    private int status;
+    private Long id;
+    private String error;
+
+    public BulkItemResult() {
+    }
+
+    public BulkItemResult(int index, String op, int status, Long id, String error) {
+        this.index = index;
+        this.op = op;
+        this.status = status;
+        this.id = id;
+        this.error = error;
+    }
+
+    // Getters and setters
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+
+    public int getStatus() { return status; }
+    public void setStatus(int status) { this.status = status; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
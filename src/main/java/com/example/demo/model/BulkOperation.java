@@ -0,0 +1,34 @@
+package com.example.demo.model;
+
+/**
+ * One entry of a bulk request: {@code create} takes a user, {@code update} an id and a
+ * user, {@code delete} an id.
+ */
+public class BulkOperation {
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    private String op;
+    private Long id;
+    private User user;
+
+    public BulkOperation() {
+    }
+
+    public BulkOperation(String op, Long id, User user) {
+        this.op = op;
+        this.id = id;
+        this.user = user;
+    }
+
+    // Getters and setters
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.model;
+
+/**
+ * Throughput and latency of a load test, so far or in total. Latencies are measured from
+ * when a request was due to start, so a stalled server shows up as latency even when the
+ * load generator had to wait for it.
+ */
+public class LoadTestReport {
+    private String target;
+    private String workload;
+    private int concurrency;
+    private int targetRate;
+    private long durationMillis;
+    private long requests;
+    private long errors;
+    private double throughput;
+    private double meanMillis;
+    private double p50Millis;
+    private double p90Millis;
+    private double p99Millis;
+    private double p999Millis;
+    private double maxMillis;
+
+    public LoadTestReport() {
+    }
+
+    // Getters and setters
+    public String getTarget() { return target; }
+    public void setTarget(String target) { this.target = target; }
+
+    /** {@code read} or {@code write}. */
+    public String getWorkload() { return workload; }
+    public void setWorkload(String workload) { this.workload = workload; }
+
+    public int getConcurrency() { return concurrency; }
+    public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+
+    /** Requests per second asked for; 0 means as fast as the workers can go. */
+    public int getTargetRate() { return targetRate; }
+    public void setTargetRate(int targetRate) { this.targetRate = targetRate; }
+
+    public long getDurationMillis() { return durationMillis; }
+    public void setDurationMillis(long durationMillis) { this.durationMillis = durationMillis; }
+
+    public long getRequests() { return requests; }
+    public void setRequests(long requests) { this.requests = requests; }
+
+    public long getErrors() { return errors; }
+    public void setErrors(long errors) { this.errors = errors; }
+
+    /** Completed requests per second. */
+    public double getThroughput() { return throughput; }
+    public void setThroughput(double throughput) { this.throughput = throughput; }
+
+    public double getMeanMillis() { return meanMillis; }
+    public void setMeanMillis(double meanMillis) { this.meanMillis = meanMillis; }
+
+    public double getP50Millis() { return p50Millis; }
+    public void setP50Millis(double p50Millis) { this.p50Millis = p50Millis; }
+
+    public double getP90Millis() { return p90Millis; }
+    public void setP90Millis(double p90Millis) { this.p90Millis = p90Millis; }
+
+    public double getP99Millis() { return p99Millis; }
+    public void setP99Millis(double p99Millis) { this.p99Millis = p99Millis; }
+
+    public double getP999Millis() { return p999Millis; }
+    public void setP999Millis(double p999Millis) { this.p999Millis = p999Millis; }
+
+    public double getMaxMillis() { return maxMillis; }
+    public void setMaxMillis(double maxMillis) { this.maxMillis = maxMillis; }
+}
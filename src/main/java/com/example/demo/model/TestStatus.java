@@ -0,0 +1,8 @@
+package com.example.demo.model;
+
+/** Outcome of a single test. */
+public enum TestStatus {
+    PASSED,
+    FAILED,
+    SKIPPED
+}
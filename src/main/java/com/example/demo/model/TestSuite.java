@@ -0,0 +1,48 @@
+package com.example.demo.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Totals of the results of a test execution at one point in time. The individual results
+ * are left out unless {@link #setTestResults} is called.
+ */
+public class TestSuite {
+    private String name;
+    private List<TestResult> testResults;
+    private long totalDuration;
+    private int totalTests;
+    private int passedTests;
+    private int failedTests;
+    private int skippedTests;
+    private LocalDateTime executionTime;
+
+    public TestSuite() {
+        this.executionTime = LocalDateTime.now();
+    }
+
+    // Getters and setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public List<TestResult> getTestResults() { return testResults; }
+    public void setTestResults(List<TestResult> testResults) { this.testResults = testResults; }
+
+    public long getTotalDuration() { return totalDuration; }
+    public void setTotalDuration(long totalDuration) { this.totalDuration = totalDuration; }
+
+    public int getTotalTests() { return totalTests; }
+    public void setTotalTests(int totalTests) { this.totalTests = totalTests; }
+
+    public int getPassedTests() { return passedTests; }
+    public void setPassedTests(int passedTests) { this.passedTests = passedTests; }
+
+    public int getFailedTests() { return failedTests; }
+    public void setFailedTests(int failedTests) { this.failedTests = failedTests; }
+
+    public int getSkippedTests() { return skippedTests; }
+    public void setSkippedTests(int skippedTests) { this.skippedTests = skippedTests; }
+
+    public LocalDateTime getExecutionTime() { return executionTime; }
+    public void setExecutionTime(LocalDateTime executionTime) { this.executionTime = executionTime; }
+}
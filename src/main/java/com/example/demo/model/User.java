@@ -8,6 +8,8 @@ public class User {
     private String email;
     private String fullName;
     private LocalDateTime createdAt;
+    // Starts at 1 and is bumped by every update; the basis of the user's ETag
+    private long version = 1;
 
     public User() {
         this.createdAt = LocalDateTime.now();
@@ -60,4 +62,12 @@ public class User {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
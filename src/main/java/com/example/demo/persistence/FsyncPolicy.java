@@ -0,0 +1,22 @@
+package com.example.demo.persistence;
+
+/**
+ * When the write-ahead log forces appended records to disk.
+ */
+public enum FsyncPolicy {
+    /**
+     * Every write waits until its record is on disk. Concurrent writers share one fsync per
+     * batch (group commit), so the cost is one disk flush per batch, not per request.
+     */
+    ALWAYS,
+    /**
+     * Writes return once their record is queued; the log is forced every fsync interval.
+     * A crash can lose at most that interval of writes.
+     */
+    INTERVAL,
+    /**
+     * The log is only forced when a segment is rolled or the log is closed; flushing is left
+     * to the operating system.
+     */
+    NEVER
+}
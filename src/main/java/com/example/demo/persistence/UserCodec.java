@@ -0,0 +1,119 @@
+package com.example.demo.persistence;
+
+import com.example.demo.model.User;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary layout of a {@link User}:
+ * <pre>
+ * long  id
+ * long  createdAt seconds (UTC epoch, Long.MIN_VALUE when absent)
+ * int   createdAt nanos
+ * short username length, bytes   (lengths are unsigned; 0xFFFF marks null)
+ * short email length, bytes
+ * short fullName length, bytes
+ * long  version
+ * </pre>
+ * Strings are UTF-8 and limited to 65534 encoded bytes. Decoding a record that ends early
+ * fails with a {@link java.nio.BufferUnderflowException}.
+ */
+public final class UserCodec {
+
+    private static final int NULL_LENGTH = 0xFFFF;
+    public static final int MAX_STRING_BYTES = NULL_LENGTH - 1;
+    private static final int FIXED_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES + 3 * Short.BYTES + Long.BYTES;
+
+    private UserCodec() {
+    }
+
+    public static byte[] encode(User user) {
+        byte[] username = utf8(user.getUsername());
+        byte[] email = utf8(user.getEmail());
+        byte[] fullName = utf8(user.getFullName());
+
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_BYTES + length(username) + length(email) + length(fullName));
+        buffer.putLong(user.getId() == null ? 0 : user.getId());
+        LocalDateTime createdAt = user.getCreatedAt();
+        if (createdAt == null) {
+            buffer.putLong(Long.MIN_VALUE).putInt(0);
+        } else {
+            buffer.putLong(createdAt.toEpochSecond(ZoneOffset.UTC)).putInt(createdAt.getNano());
+        }
+        putString(buffer, username);
+        putString(buffer, email);
+        putString(buffer, fullName);
+        buffer.putLong(user.getVersion());
+        return buffer.array();
+    }
+
+    /**
+     * Throws {@link IllegalArgumentException} naming the first string field of the user that
+     * is longer than {@link #MAX_STRING_BYTES} in UTF-8, so callers can reject the user before
+     * trying to encode it.
+     */
+    public static void checkFields(User user) {
+        checkLength("username", user.getUsername());
+        checkLength("email", user.getEmail());
+        checkLength("fullName", user.getFullName());
+    }
+
+    private static void checkLength(String field, String value) {
+        // A char encodes to at most 3 UTF-8 bytes, so short values need no encoding to check
+        if (value != null && value.length() > MAX_STRING_BYTES / 3
+                && value.getBytes(StandardCharsets.UTF_8).length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException(field + " exceeds " + MAX_STRING_BYTES + " bytes");
+        }
+    }
+
+    /**
+     * Decodes one user starting at the buffer's position and advances past it. The buffer's
+     * limit must be the end of the record.
+     */
+    public static User decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        User user = new User(id, getString(buffer), getString(buffer), getString(buffer));
+        user.setCreatedAt(seconds == Long.MIN_VALUE
+                ? null
+                : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        user.setVersion(buffer.getLong());
+        return user;
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Field exceeds " + MAX_STRING_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) NULL_LENGTH);
+        } else {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo.persistence;
+
+import com.example.demo.model.User;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Optional durability for the user store: a group-committed {@link WriteAheadLog} of every
+ * create, update and delete, plus periodic {@link UserSnapshot}s that let the log be
+ * truncated. On open, the latest snapshot and the log written after it are replayed.
+ */
+public final class UserPersistence implements Closeable {
+
+    /** Receives the recovered state, in the order it was written. */
+    public interface Replay {
+        void upsert(User user);
+
+        void delete(long id);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(UserPersistence.class.getName());
+
+    private static final String SNAPSHOT_FILE = "users.snapshot";
+    private static final long MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private final Path directory;
+    private final WriteAheadLog log;
+    private final boolean recovered;
+    private final long recoveredIdHighWater;
+    private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+    private ScheduledExecutorService snapshotScheduler;
+
+    private UserPersistence(Path directory, WriteAheadLog log, boolean recovered, long recoveredIdHighWater) {
+        this.directory = directory;
+        this.log = log;
+        this.recovered = recovered;
+        this.recoveredIdHighWater = recoveredIdHighWater;
+    }
+
+    /**
+     * Replays the snapshot and log found in {@code directory} (creating it if needed) into
+     * {@code replay}, then opens a fresh log segment for new writes.
+     */
+    public static UserPersistence open(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+                                       Replay replay) throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+
+        long[] highWater = {0};
+        long[] records = {0};
+        Replay tracking = new Replay() {
+            @Override
+            public void upsert(User user) {
+                highWater[0] = Math.max(highWater[0], user.getId());
+                records[0]++;
+                replay.upsert(user);
+            }
+
+            @Override
+            public void delete(long id) {
+                highWater[0] = Math.max(highWater[0], id);
+                records[0]++;
+                replay.delete(id);
+            }
+        };
+
+        UserSnapshot.Header snapshot = UserSnapshot.read(directory.resolve(SNAPSHOT_FILE), tracking);
+        long firstSegment = 1;
+        if (snapshot != null) {
+            highWater[0] = Math.max(highWater[0], snapshot.idHighWater());
+            firstSegment = snapshot.nextSegment();
+        }
+        long lastSegment = WriteAheadLog.replay(directory, firstSegment, tracking);
+
+        LOGGER.info(String.format("Recovered %d user records from %s in %d ms",
+                records[0], directory, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+
+        WriteAheadLog log = new WriteAheadLog(directory, lastSegment + 1, fsyncPolicy,
+                fsyncIntervalMillis, MAX_SEGMENT_BYTES);
+        return new UserPersistence(directory, log, snapshot != null || records[0] > 0, highWater[0]);
+    }
+
+    /** Whether {@link #open} found an earlier snapshot or log records. */
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    /** The highest user id seen while recovering. */
+    public long getRecoveredIdHighWater() {
+        return recoveredIdHighWater;
+    }
+
+    /**
+     * Waits, for a bounded time, until the log has room for another record. Call it before
+     * taking the lock that {@link #logUpsert(User)} or {@link #logDelete(long)} is called
+     * under, since those never wait for room themselves.
+     */
+    public void awaitCapacity() {
+        log.awaitCapacity();
+    }
+
+    /**
+     * Logs a create or update. Call it while holding whatever lock orders writes to the same
+     * user, after {@link #awaitCapacity()}, then pass the result to {@link #awaitDurable(long)}
+     * after releasing it.
+     */
+    public long logUpsert(User user) {
+        recordsSinceSnapshot.incrementAndGet();
+        return log.appendUpsert(user);
+    }
+
+    /** Logs a delete; see {@link #logUpsert(User)}. */
+    public long logDelete(long id) {
+        recordsSinceSnapshot.incrementAndGet();
+        return log.appendDelete(id);
+    }
+
+    /** Waits until the given record is durable as far as the fsync policy promises. */
+    public void awaitDurable(long sequence) {
+        log.awaitDurable(sequence);
+    }
+
+    /**
+     * Writes a snapshot of {@code users} and deletes the log segments it replaces.
+     * {@code idHighWater} is read after the log has been rolled, so it covers every id
+     * used by the records the snapshot replaces.
+     */
+    public synchronized void snapshot(Iterable<User> users, LongSupplier idHighWater) throws IOException {
+        long start = System.nanoTime();
+        long pending = recordsSinceSnapshot.getAndSet(0);
+        long nextSegment;
+        try {
+            nextSegment = log.roll();
+        } catch (IOException e) {
+            recordsSinceSnapshot.addAndGet(pending);
+            throw e;
+        }
+        long count = UserSnapshot.write(directory.resolve(SNAPSHOT_FILE), nextSegment,
+                idHighWater.getAsLong(), users);
+        log.deleteSegmentsBefore(nextSegment);
+        LOGGER.info(String.format("Wrote snapshot of %d users in %d ms",
+                count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /** Takes a snapshot every {@code intervalSeconds} unless nothing was logged since the last. */
+    public synchronized void scheduleSnapshots(long intervalSeconds, Iterable<User> users, LongSupplier idHighWater) {
+        if (intervalSeconds <= 0 || snapshotScheduler != null) {
+            return;
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            if (recordsSinceSnapshot.get() == 0) {
+                return;
+            }
+            try {
+                snapshot(users, idHighWater);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Scheduled user snapshot failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (snapshotScheduler != null) {
+                snapshotScheduler.shutdownNow();
+            }
+        }
+        log.close();
+    }
+}
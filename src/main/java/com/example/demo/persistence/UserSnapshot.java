@@ -0,0 +1,135 @@
+package com.example.demo.persistence;
+
+import com.example.demo.model.User;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time copy of the whole store, written next to the write-ahead log so that
+ * startup only has to replay the log records appended after it.
+ * <pre>
+ * int  magic, int format version
+ * long first write-ahead log segment not covered by this snapshot
+ * long highest user id allocated
+ * repeated: int length, encoded user   (terminated by length -1)
+ * long crc32 of everything above
+ * </pre>
+ * Snapshots are taken while writes continue, so one may already contain some effects of
+ * records in the following segments. Replaying those records on top is harmless because
+ * every record is a whole-user upsert or a delete.
+ */
+final class UserSnapshot {
+
+    private static final int MAGIC = 0x55534e50; // "USNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int END_OF_USERS = -1;
+
+    /** The header fields of a snapshot that has been read back. */
+    record Header(long nextSegment, long idHighWater, long userCount) {
+    }
+
+    private UserSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot to a temporary file, forces it to disk and atomically moves it over
+     * {@code file}, so a crash leaves either the old or the new snapshot intact.
+     */
+    static long write(Path file, long nextSegment, long idHighWater, Iterable<User> users) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(nonClosing(channel), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(nextSegment);
+            out.writeLong(idHighWater);
+            for (User user : users) {
+                byte[] encoded = UserCodec.encode(user);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+                count++;
+            }
+            out.writeInt(END_OF_USERS);
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Feeds every user in the snapshot to {@code replay}.
+     *
+     * @return the snapshot header, or null if there is no snapshot yet
+     */
+    static Header read(Path file, UserPersistence.Replay replay) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            CheckedInputStream checked = new CheckedInputStream(raw, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a user snapshot: " + file);
+            }
+            long nextSegment = in.readLong();
+            long idHighWater = in.readLong();
+            long count = 0;
+            int length;
+            while ((length = in.readInt()) != END_OF_USERS) {
+                byte[] encoded = new byte[length];
+                in.readFully(encoded);
+                replay.upsert(UserCodec.decode(ByteBuffer.wrap(encoded)));
+                count++;
+            }
+            long expected = checked.getChecksum().getValue();
+            if (new DataInputStream(raw).readLong() != expected) {
+                throw new IOException("Checksum mismatch in snapshot " + file);
+            }
+            return new Header(nextSegment, idHighWater, count);
+        } catch (EOFException e) {
+            throw new IOException("Truncated snapshot " + file, e);
+        }
+    }
+
+    private static OutputStream nonClosing(FileChannel channel) {
+        OutputStream out = Channels.newOutputStream(channel);
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                // The channel is forced and closed by the caller
+            }
+        };
+    }
+}
@@ -0,0 +1,460 @@
+package com.example.demo.persistence;
+
+import com.example.demo.model.User;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of user mutations, split into numbered segment files
+ * ({@code wal-00000000000000000001.log}, ...).
+ * <p>
+ * Callers frame and checksum their record, then hand it to a single writer thread that
+ * drains the queue in batches, writes each batch with one gathering {@link FileChannel}
+ * write and forces it according to the {@link FsyncPolicy}. Each record is framed as
+ * {@code int length, int crc32, byte op, payload}.
+ * <p>
+ * Appends are made while the caller holds the store's lock for the user, so they never wait
+ * for room in the queue; callers wait in {@link #awaitCapacity()} before taking that lock
+ * instead. If the writer thread stops for any reason, pending and later calls fail rather
+ * than wait for a write that will never come.
+ */
+class WriteAheadLog implements Closeable {
+
+    static final byte UPSERT = 1;
+    static final byte DELETE = 2;
+
+    private static final Logger LOGGER = Logger.getLogger(WriteAheadLog.class.getName());
+
+    private static final int FRAME_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+    private static final int MAX_BATCH = 4096;
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long CAPACITY_TIMEOUT_MILLIS = 10_000;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long maxSegmentBytes;
+    // Unbounded so appends never block; awaitCapacity keeps it near QUEUE_CAPACITY
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition queueDrained = queueLock.newCondition();
+
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+    private volatile long durableSequence;
+    // Set under this, so no append is queued once the writer has given up
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    // Guarded by this; sequence numbers must be handed out in queue order
+    private long lastSequence;
+
+    // Writer thread only
+    private FileChannel channel;
+    private long segment;
+    private long segmentBytes;
+
+    private record Entry(long sequence, ByteBuffer frame, CompletableFuture<Long> roll) {
+    }
+
+    WriteAheadLog(Path directory, long firstSegment, FsyncPolicy fsyncPolicy,
+                  long fsyncIntervalMillis, long maxSegmentBytes) throws IOException {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.maxSegmentBytes = maxSegmentBytes;
+        openSegment(firstSegment);
+
+        this.writer = new Thread(this::writeLoop, "user-wal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Waits until the queue has room for another record, for at most
+     * {@value #CAPACITY_TIMEOUT_MILLIS} ms. Call it before taking the lock an append is made
+     * under; the queue then outgrows its capacity by at most one record per writing thread.
+     */
+    void awaitCapacity() {
+        if (queue.size() < QUEUE_CAPACITY) {
+            checkFailure();
+            return;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(CAPACITY_TIMEOUT_MILLIS);
+        queueLock.lock();
+        try {
+            while (queue.size() >= QUEUE_CAPACITY) {
+                checkFailure();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Write-ahead log queue stayed full for "
+                            + CAPACITY_TIMEOUT_MILLIS + " ms");
+                }
+                remaining = queueDrained.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the write-ahead log", e);
+        } finally {
+            queueLock.unlock();
+        }
+        checkFailure();
+    }
+
+    /** Queues an upsert and returns its sequence number for {@link #awaitDurable(long)}. */
+    long appendUpsert(User user) {
+        byte[] payload = UserCodec.encode(user);
+        return enqueue(frame(UPSERT, payload));
+    }
+
+    /** Queues a delete and returns its sequence number for {@link #awaitDurable(long)}. */
+    long appendDelete(long id) {
+        return enqueue(frame(DELETE, ByteBuffer.allocate(Long.BYTES).putLong(id).array()));
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is on disk. Only
+     * {@link FsyncPolicy#ALWAYS} waits; the other policies return immediately.
+     */
+    void awaitDurable(long sequence) {
+        if (fsyncPolicy != FsyncPolicy.ALWAYS) {
+            checkFailure();
+            return;
+        }
+        if (durableSequence >= sequence) {
+            return;
+        }
+        durableLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                checkFailure();
+                durableAdvanced.awaitUninterruptibly();
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Closes the current segment and starts the next one. Every record appended before this
+     * call is in an earlier segment once it returns.
+     *
+     * @return the number of the new segment
+     */
+    long roll() throws IOException {
+        CompletableFuture<Long> rolled = new CompletableFuture<>();
+        enqueue(new Entry(0, null, rolled));
+        try {
+            return rolled.join();
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to roll the write-ahead log", e.getCause());
+        }
+    }
+
+    /** Deletes every segment numbered below {@code segment}. */
+    void deleteSegmentsBefore(long segment) throws IOException {
+        for (var entry : listSegments(directory).headMap(segment).entrySet()) {
+            Files.deleteIfExists(entry.getValue());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            // No append can slip in after this, so the writer drains everything queued so far
+            closed = true;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+        checkFailure();
+    }
+
+    private synchronized long enqueue(ByteBuffer frame) {
+        return enqueue(new Entry(++lastSequence, frame, null)).sequence();
+    }
+
+    private synchronized Entry enqueue(Entry entry) {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        checkFailure();
+        queue.add(entry);
+        return entry;
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        List<ByteBuffer> frames = new ArrayList<>(MAX_BATCH);
+        long pollMillis = fsyncPolicy == FsyncPolicy.INTERVAL
+                ? Math.max(1, Math.min(IDLE_POLL_MILLIS, TimeUnit.NANOSECONDS.toMillis(fsyncIntervalNanos)))
+                : IDLE_POLL_MILLIS;
+        long lastForce = System.nanoTime();
+        long unforcedSequence = 0;
+        try {
+            while (true) {
+                Entry first = queue.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && queue.isEmpty()) {
+                        break;
+                    }
+                } else {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    signal(queueLock, queueDrained);
+
+                    long lastWritten = 0;
+                    for (Entry entry : batch) {
+                        if (entry.roll() != null) {
+                            write(frames);
+                            if (lastWritten > 0) {
+                                unforcedSequence = lastWritten;
+                            }
+                            rollSegment();
+                            markDurable(unforcedSequence);
+                            entry.roll().complete(segment);
+                        } else {
+                            frames.add(entry.frame());
+                            lastWritten = entry.sequence();
+                        }
+                    }
+                    write(frames);
+                    batch.clear();
+                    if (lastWritten > 0) {
+                        unforcedSequence = lastWritten;
+                    }
+                }
+
+                if (unforcedSequence > durableSequence) {
+                    long now = System.nanoTime();
+                    if (fsyncPolicy == FsyncPolicy.ALWAYS
+                            || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForce >= fsyncIntervalNanos)) {
+                        channel.force(false);
+                        lastForce = now;
+                        markDurable(unforcedSequence);
+                    } else if (fsyncPolicy == FsyncPolicy.NEVER) {
+                        markDurable(unforcedSequence);
+                    }
+                }
+                if (segmentBytes >= maxSegmentBytes) {
+                    rollSegment();
+                    markDurable(unforcedSequence);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Write-ahead log writer failed", e);
+            fail(e, batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new IOException("Write-ahead log writer was interrupted", e), batch);
+        } catch (RuntimeException | Error e) {
+            LOGGER.log(Level.SEVERE, "Write-ahead log writer failed", e);
+            fail(new IOException("Write-ahead log writer stopped", e), batch);
+            throw e;
+        }
+    }
+
+    /** Fails every pending and later call; nothing appended from now on would be written. */
+    private void fail(IOException e, List<Entry> batch) {
+        synchronized (this) {
+            failure = e;
+        }
+        queue.drainTo(batch);
+        for (Entry entry : batch) {
+            if (entry.roll() != null) {
+                entry.roll().completeExceptionally(e);
+            }
+        }
+        signal(durableLock, durableAdvanced);
+        signal(queueLock, queueDrained);
+    }
+
+    private void write(List<ByteBuffer> frames) throws IOException {
+        if (frames.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        segmentBytes += remaining;
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        frames.clear();
+    }
+
+    private void rollSegment() throws IOException {
+        channel.force(false);
+        channel.close();
+        openSegment(segment + 1);
+    }
+
+    private void openSegment(long number) throws IOException {
+        this.segment = number;
+        this.segmentBytes = 0;
+        this.channel = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void markDurable(long sequence) {
+        if (sequence > durableSequence) {
+            durableSequence = sequence;
+            signal(durableLock, durableAdvanced);
+        }
+    }
+
+    private static void signal(ReentrantLock lock, Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Write-ahead log is unavailable", failure);
+        }
+    }
+
+    private static ByteBuffer frame(byte op, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(op);
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + 1 + payload.length);
+        frame.putInt(1 + payload.length).putInt((int) crc.getValue()).put(op).put(payload);
+        return frame.flip();
+    }
+
+    /**
+     * Replays every segment numbered {@code fromSegment} or higher, in order. A torn or
+     * corrupt record at the end of the newest segment is what a crash mid-write leaves
+     * behind, so that segment is truncated to its last complete record. Damage anywhere
+     * else fails the replay.
+     *
+     * @return the number of the last segment on disk, or {@code fromSegment - 1} if none
+     */
+    static long replay(Path directory, long fromSegment, UserPersistence.Replay replay) throws IOException {
+        TreeMap<Long, Path> segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            return fromSegment - 1;
+        }
+        long newest = segments.lastKey();
+        for (var entry : segments.descendingMap().entrySet()) {
+            if (Files.size(entry.getValue()) > 0) {
+                newest = entry.getKey();
+                break;
+            }
+        }
+        long lastSegment = segments.lastKey();
+        for (var entry : segments.tailMap(fromSegment, true).entrySet()) {
+            if (Files.size(entry.getValue()) == 0) {
+                // Left by a restart with no writes; new writes always go to a fresh segment
+                Files.delete(entry.getValue());
+                continue;
+            }
+            replaySegment(entry.getValue(), entry.getKey() == newest, replay);
+        }
+        return Math.max(lastSegment, fromSegment - 1);
+    }
+
+    private static void replaySegment(Path path, boolean newest, UserPersistence.Replay replay) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() > 0) {
+                int start = buffer.position();
+                if (buffer.remaining() < FRAME_HEADER_BYTES + 1) {
+                    truncate(channel, path, start, newest);
+                    return;
+                }
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 1 || length > buffer.remaining()) {
+                    truncate(channel, path, start, newest);
+                    return;
+                }
+                ByteBuffer body = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    truncate(channel, path, start, newest);
+                    return;
+                }
+                buffer.position(buffer.position() + length);
+
+                byte op = body.get();
+                if (op == UPSERT) {
+                    replay.upsert(UserCodec.decode(body));
+                } else if (op == DELETE) {
+                    replay.delete(body.getLong());
+                } else {
+                    throw new IOException("Unknown record type " + op + " in " + path);
+                }
+            }
+        }
+    }
+
+    private static void truncate(FileChannel channel, Path path, long position, boolean newest) throws IOException {
+        if (!newest) {
+            throw new IOException("Corrupt record at offset " + position + " in " + path);
+        }
+        LOGGER.warning("Truncating incomplete write-ahead log tail at offset " + position + " in " + path);
+        channel.truncate(position);
+    }
+
+    static TreeMap<Long, Path> listSegments(Path directory) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                    try {
+                        segments.put(Long.parseLong(number), file);
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            });
+        }
+        return segments;
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
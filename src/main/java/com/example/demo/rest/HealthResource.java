@@ -1,5 +1,7 @@
 package com.example.demo.rest;
 
+import com.example.demo.health.HealthMonitor;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
@@ -12,6 +14,14 @@ import java.util.Map;
 @Produces(MediaType.APPLICATION_JSON)
 public class HealthResource {
 
+    private static final Map<String, String> READY = Map.of("status", "READY");
+    private static final Map<String, String> NOT_READY = Map.of("status", "NOT_READY");
+    private static final Map<String, String> LIVE = Map.of("status", "LIVE");
+    private static final Map<String, String> NOT_LIVE = Map.of("status", "NOT_LIVE");
+
+    @Inject
+    private HealthMonitor healthMonitor;
+
     @GET
     public Response health() {
         Map<String, Object> health = new HashMap<>();
@@ -23,19 +33,18 @@ public class HealthResource {
         return Response.ok(health).build();
     }
 
+    // Answers from the health monitor's last background check, with prebuilt bodies
     @GET
     @Path("/ready")
     public Response ready() {
-        Map<String, String> readiness = new HashMap<>();
-        readiness.put("status", "READY");
-        return Response.ok(readiness).build();
+        return healthMonitor.isReady() ? Response.ok(READY).build()
+                : Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(NOT_READY).build();
     }
 
     @GET
     @Path("/live")
     public Response live() {
-        Map<String, String> liveness = new HashMap<>();
-        liveness.put("status", "LIVE");
-        return Response.ok(liveness).build();
+        return healthMonitor.isLive() ? Response.ok(LIVE).build()
+                : Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(NOT_LIVE).build();
     }
-}
\ No newline at end of file
+}
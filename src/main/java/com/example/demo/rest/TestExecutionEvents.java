@@ -0,0 +1,117 @@
+package com.example.demo.rest;
+
+import com.example.demo.model.TestResult;
+import com.example.demo.service.TestRunnerService.TestSuiteExecution;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-sent event streams of running test executions. A new client first gets the
+ * execution's current state, then only the changes: a {@code result} event per new
+ * {@link TestResult}, an {@code output} event per appended output text and a
+ * {@code status} event per status change. All clients of one execution share a single
+ * {@link SseBroadcaster}, which is closed, ending every stream, once the execution finishes.
+ */
+@ApplicationScoped
+public class TestExecutionEvents {
+
+    private static final Logger LOGGER = Logger.getLogger(TestExecutionEvents.class.getName());
+
+    private final ConcurrentMap<String, Stream> streams = new ConcurrentHashMap<>();
+
+    /** Sends the execution's state to the sink and keeps it updated until the execution ends. */
+    public void subscribe(TestSuiteExecution execution, SseEventSink sink, Sse sse) {
+        // The replay and the registration happen under the execution's lock, so the sink
+        // misses no change made in between and sees none twice
+        execution.replay(new Events(sse) {
+            @Override
+            void send(OutboundSseEvent event) {
+                sink.send(event);
+            }
+        }, () -> {
+            if (execution.isFinished()) {
+                sink.close();
+                return;
+            }
+            streams.computeIfAbsent(execution.getId(), id -> new Stream(execution, sse)).broadcaster.register(sink);
+        });
+    }
+
+    /** Turns execution changes into SSE events. */
+    private abstract static class Events implements TestSuiteExecution.Listener {
+        private final Sse sse;
+
+        Events(Sse sse) {
+            this.sse = sse;
+        }
+
+        abstract void send(OutboundSseEvent event);
+
+        @Override
+        public void onResult(TestResult result) {
+            send(event("result", result));
+        }
+
+        @Override
+        public void onOutput(String text) {
+            // JSON keeps line breaks intact inside the single-line SSE data field
+            send(event("output", Map.of("text", text)));
+        }
+
+        @Override
+        public void onStatus(TestSuiteExecution execution) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("status", execution.getStatus());
+            status.put("endTime", execution.getEndTime());
+            send(event("status", status));
+        }
+
+        private OutboundSseEvent event(String name, Object data) {
+            return sse.newEventBuilder()
+                    .name(name)
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(data)
+                    .build();
+        }
+    }
+
+    /** The broadcaster of one running execution, fed by the execution's changes. */
+    private final class Stream extends Events {
+        private final TestSuiteExecution execution;
+        private final SseBroadcaster broadcaster;
+
+        Stream(TestSuiteExecution execution, Sse sse) {
+            super(sse);
+            this.execution = execution;
+            this.broadcaster = sse.newBroadcaster();
+            broadcaster.onError((sink, error) ->
+                    LOGGER.log(Level.FINE, "Dropping test event stream of execution " + execution.getId(), error));
+            execution.subscribe(this);
+        }
+
+        @Override
+        void send(OutboundSseEvent event) {
+            broadcaster.broadcast(event);
+        }
+
+        @Override
+        public void onStatus(TestSuiteExecution changed) {
+            super.onStatus(changed);
+            if (changed.isFinished()) {
+                execution.unsubscribe(this);
+                streams.remove(execution.getId(), this);
+                broadcaster.close();
+            }
+        }
+    }
+}
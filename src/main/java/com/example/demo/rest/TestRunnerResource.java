@@ -1,12 +1,20 @@
 package com.example.demo.rest;
 
+import com.example.demo.model.TestSuite;
+import com.example.demo.service.OutputBuffer;
+import com.example.demo.service.TestRunRejectedException;
 import com.example.demo.service.TestRunnerService;
 import com.example.demo.service.TestRunnerService.TestSuiteExecution;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,9 +23,14 @@ import java.util.Map;
 @Consumes(MediaType.APPLICATION_JSON)
 public class TestRunnerResource {
 
+    static final int MAX_OUTPUT_READ = 1024 * 1024;
+
     @Inject
     private TestRunnerService testRunnerService;
 
+    @Inject
+    private TestExecutionEvents executionEvents;
+
     @POST
     @Path("/run")
     public Response runAllTests() {
@@ -25,10 +38,12 @@ public class TestRunnerResource {
             String executionId = testRunnerService.runTests();
             Map<String, String> response = new HashMap<>();
             response.put("executionId", executionId);
-            response.put("status", "STARTED");
+            response.put("status", "QUEUED");
             response.put("message", "Test execution started");
 
             return Response.accepted(response).build();
+        } catch (TestRunRejectedException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to start test execution");
@@ -45,10 +60,12 @@ public class TestRunnerResource {
             String executionId = testRunnerService.runSpecificTest(testClass, testMethod);
             Map<String, String> response = new HashMap<>();
             response.put("executionId", executionId);
-            response.put("status", "STARTED");
+            response.put("status", "QUEUED");
             response.put("message", "Test execution started for " + testClass + "." + testMethod);
 
             return Response.accepted(response).build();
+        } catch (TestRunRejectedException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to start test execution");
@@ -57,6 +74,52 @@ public class TestRunnerResource {
         }
     }
 
+    /**
+     * Queues a load test against this node's users, reported through the usual execution
+     * endpoints: progress in the output, throughput and latency percentiles in {@code load}.
+     */
+    @POST
+    @Path("/load")
+    public Response runLoadTest(@QueryParam("target") @DefaultValue("service") String target,
+                                @QueryParam("workload") @DefaultValue("read") String workload,
+                                @QueryParam("concurrency") @DefaultValue("16") int concurrency,
+                                @QueryParam("rate") @DefaultValue("0") int rate,
+                                @QueryParam("duration") @DefaultValue("10") int durationSeconds) {
+        try {
+            String executionId = testRunnerService.runLoadTest(target, workload, concurrency, rate, durationSeconds);
+            Map<String, String> response = new HashMap<>();
+            response.put("executionId", executionId);
+            response.put("status", "QUEUED");
+            response.put("message", "Load test started against " + target);
+
+            return Response.accepted(response).build();
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Invalid load test parameters");
+            error.put("message", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(error).build();
+        } catch (TestRunRejectedException e) {
+            return tooManyRequests(e);
+        }
+    }
+
+    /** Active and queued runs, for watching the runner's backlog. */
+    @GET
+    @Path("/queue")
+    public Response getQueue() {
+        return Response.ok(testRunnerService.getExecutorStats()).build();
+    }
+
+    private Response tooManyRequests(TestRunRejectedException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Test runner is busy");
+        error.put("message", e.getMessage());
+        return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, e.getRetryAfterSeconds())
+                .entity(error)
+                .build();
+    }
+
     @GET
     @Path("/execution/{executionId}")
     public Response getTestExecution(@PathParam("executionId") String executionId) {
@@ -71,6 +134,58 @@ public class TestRunnerResource {
         return Response.ok(execution).build();
     }
 
+    /**
+     * Reads the execution's output from character offset {@code from}: negative values count
+     * back from the end. The response carries the text and the {@code next} offset to pass on
+     * the following call, so clients can tail the log by polling with the last {@code next}.
+     */
+    @GET
+    @Path("/execution/{executionId}/output")
+    public Response getExecutionOutput(@PathParam("executionId") String executionId,
+                                       @QueryParam("from") @DefaultValue("0") long from,
+                                       @QueryParam("limit") @DefaultValue("65536") int limit) {
+        TestSuiteExecution execution = testRunnerService.getTestExecution(executionId);
+        if (execution == null) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Test execution not found");
+            error.put("executionId", executionId);
+            return Response.status(Response.Status.NOT_FOUND).entity(error).build();
+        }
+        if (limit < 1 || limit > MAX_OUTPUT_READ) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "limit must be between 1 and " + MAX_OUTPUT_READ);
+            return Response.status(Response.Status.BAD_REQUEST).entity(error).build();
+        }
+
+        // Read the status first: if it is final, the text read after it is complete
+        String status = execution.getStatus();
+        OutputBuffer.Slice slice = execution.getOutputBuffer().read(from, limit);
+        Map<String, Object> output = new LinkedHashMap<>();
+        output.put("from", slice.getFrom());
+        output.put("next", slice.getNext());
+        output.put("text", slice.getText());
+        output.put("truncated", slice.isTruncated());
+        output.put("status", status);
+        return Response.ok(output).build();
+    }
+
+    /**
+     * Streams the execution as server-sent events: its current results, output and status
+     * first, then each change as it happens. The stream ends when the execution finishes.
+     */
+    @GET
+    @Path("/execution/{executionId}/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamExecution(@PathParam("executionId") String executionId,
+                                @Context SseEventSink sink,
+                                @Context Sse sse) {
+        TestSuiteExecution execution = testRunnerService.getTestExecution(executionId);
+        if (execution == null) {
+            throw new NotFoundException("Test execution not found: " + executionId);
+        }
+        executionEvents.subscribe(execution, sink, sse);
+    }
+
     @GET
     @Path("/executions")
     public Response getAllExecutions() {
@@ -88,30 +203,29 @@ public class TestRunnerResource {
             return Response.status(Response.Status.NOT_FOUND).entity(error).build();
         }
 
+        return Response.ok(summarize(executionId, execution)).build();
+    }
+
+    /** The status of an execution with its results counted by outcome. */
+    static Map<String, Object> summarize(String executionId, TestSuiteExecution execution) {
         Map<String, Object> status = new HashMap<>();
         status.put("executionId", executionId);
         status.put("status", execution.getStatus());
         status.put("startTime", execution.getStartTime());
         status.put("endTime", execution.getEndTime());
 
-        if (execution.getResults() != null) {
-            long passed = execution.getResults().stream()
-                .filter(r -> "PASSED".equals(r.getStatus()))
-                .count();
-            long failed = execution.getResults().stream()
-                .filter(r -> "FAILED".equals(r.getStatus()))
-                .count();
-            long skipped = execution.getResults().stream()
-                .filter(r -> "SKIPPED".equals(r.getStatus()))
-                .count();
-
-            status.put("totalTests", execution.getResults().size());
-            status.put("passed", passed);
-            status.put("failed", failed);
-            status.put("skipped", skipped);
+        // Counted as results arrive; this stays O(1) however many results there are
+        TestSuite summary = execution.getSummary();
+        status.put("totalTests", summary.getTotalTests());
+        status.put("passed", summary.getPassedTests());
+        status.put("failed", summary.getFailedTests());
+        status.put("skipped", summary.getSkippedTests());
+        status.put("totalDuration", summary.getTotalDuration());
+        status.put("type", execution.getType());
+        if (execution.getLoad() != null) {
+            status.put("load", execution.getLoad());
         }
-
-        return Response.ok(status).build();
+        return status;
     }
 
     @GET
@@ -119,23 +233,14 @@ public class TestRunnerResource {
     public Response getAvailableTests() {
         Map<String, Object> availableTests = new HashMap<>();
 
-        // List of available test classes and methods
-        Map<String, String[]> tests = new HashMap<>();
-        tests.put("UserServiceTest", new String[]{
-            "testGetAllUsers", "testCreateUser", "testGetUserById",
-            "testUpdateUser", "testDeleteUser", "testFindByUsername"
-        });
-        tests.put("UserResourceIT", new String[]{
-            "testHealthEndpoint", "testGetAllUsers", "testCreateUser",
-            "testGetUserById", "testDeleteUser", "testSearchByUsername",
-            "testSearchByUsernameNotFound"
-        });
+        // Discovered from the test classes on the classpath
+        Map<String, List<String>> tests = testRunnerService.getAvailableTests();
 
         availableTests.put("testClasses", tests);
         availableTests.put("totalClasses", tests.size());
 
         int totalMethods = tests.values().stream()
-            .mapToInt(methods -> methods.length)
+            .mapToInt(List::size)
             .sum();
         availableTests.put("totalMethods", totalMethods);
 
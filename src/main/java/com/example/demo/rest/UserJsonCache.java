@@ -0,0 +1,158 @@
+package com.example.demo.rest;
+
+import com.example.demo.model.User;
+import com.example.demo.service.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Bounded cache of single users already encoded as UTF-8 JSON, so hot reads of
+ * {@code GET /users/{id}} write bytes instead of running the serializer. Entries are keyed
+ * by id and only served for the version they were encoded from; {@link UserService}
+ * change notifications drop them early to free the space.
+ * <p>
+ * The cache is split into stripes by id, each an access-ordered LinkedHashMap under its
+ * own lock, and evicts least recently used entries of a stripe once the stripe exceeds its
+ * share of the byte budget.
+ */
+@ApplicationScoped
+public class UserJsonCache {
+
+    private static final int STRIPES = 16;
+
+    // Entry overhead beyond the JSON itself: map node, entry object, array header
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    @Inject
+    private UserService userService;
+
+    // 0 disables caching
+    @Inject
+    @ConfigProperty(name = "users.json-cache.max-bytes", defaultValue = "16777216")
+    private long maxBytes = 16 * 1024 * 1024;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class Entry {
+        final long version;
+        final byte[] json;
+
+        Entry(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+        }
+
+        long weight() {
+            return json.length + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+
+    private static final class Stripe {
+        final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        long bytes;
+    }
+
+    public UserJsonCache() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /** A cache outside CDI with the given byte budget; it is not told about user changes. */
+    public UserJsonCache(long maxBytes) {
+        this();
+        this.maxBytes = maxBytes;
+    }
+
+    @PostConstruct
+    void init() {
+        userService.addChangeListener(this::invalidate);
+    }
+
+    /** Returns the JSON of the user, from the cache when it holds this version. */
+    public byte[] get(User user) {
+        long id = user.getId();
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(id);
+            if (entry != null && entry.version == user.getVersion()) {
+                hits.increment();
+                return entry.json;
+            }
+        }
+
+        misses.increment();
+        byte[] json = UserJsonWriter.bytes(user, UserProjection.ALL);
+        Entry entry = new Entry(user.getVersion(), json);
+        long stripeBudget = maxBytes / STRIPES;
+        if (entry.weight() > stripeBudget) {
+            return json;
+        }
+        synchronized (stripe) {
+            Entry previous = stripe.entries.get(id);
+            // A racing reader may already have cached a newer version
+            if (previous == null || previous.version < entry.version) {
+                stripe.entries.put(id, entry);
+                stripe.bytes += entry.weight() - (previous == null ? 0 : previous.weight());
+                evict(stripe, stripeBudget);
+            }
+        }
+        return json;
+    }
+
+    /** Drops the cached JSON of a user. */
+    public void invalidate(long id) {
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            Entry removed = stripe.entries.remove(id);
+            if (removed != null) {
+                stripe.bytes -= removed.weight();
+            }
+        }
+    }
+
+    /** Hit, miss and eviction counts plus the current size, for sizing the cache. */
+    public Map<String, Object> getStats() {
+        long entries = 0;
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                entries += stripe.entries.size();
+                bytes += stripe.bytes;
+            }
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.sum());
+        stats.put("entries", entries);
+        stats.put("bytes", bytes);
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+
+    private void evict(Stripe stripe, long budget) {
+        Iterator<Entry> eldest = stripe.entries.values().iterator();
+        while (stripe.bytes > budget && eldest.hasNext()) {
+            stripe.bytes -= eldest.next().weight();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private Stripe stripe(long id) {
+        return stripes[(int) (id ^ (id >>> 32)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.rest;
+
+import com.example.demo.model.User;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * Writes users with a JSON-P generator straight to the response stream, so listing the
+ * whole store never materializes it as a list. The output matches the JSON-B
+ * representation of {@link User}.
+ */
+public final class UserJsonWriter {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private static final JsonGeneratorFactory GENERATORS = Json.createGeneratorFactory(Map.of());
+
+    private UserJsonWriter() {
+    }
+
+    /** Encodes one user as UTF-8 JSON. */
+    static byte[] bytes(User user, UserProjection projection) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = GENERATORS.createGenerator(output, StandardCharsets.UTF_8)) {
+            write(generator, user, projection);
+        }
+        return output.toByteArray();
+    }
+
+    /** Streams the users as a single JSON array. */
+    public static StreamingOutput array(Iterable<User> users, UserProjection projection) {
+        return output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try (JsonGenerator generator = GENERATORS.createGenerator(keepOpen(writer))) {
+                generator.writeStartArray();
+                for (User user : users) {
+                    write(generator, user, projection);
+                }
+                generator.writeEnd();
+            }
+            writer.flush();
+        };
+    }
+
+    /** Streams the users as newline delimited JSON, one object per line. */
+    public static StreamingOutput ndjson(Iterable<User> users, UserProjection projection) {
+        return output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            Writer line = keepOpen(writer);
+            for (User user : users) {
+                // A generator writes a single JSON value, so each line gets its own
+                try (JsonGenerator generator = GENERATORS.createGenerator(line)) {
+                    write(generator, user, projection);
+                }
+                writer.write('\n');
+            }
+            writer.flush();
+        };
+    }
+
+    // The container owns the response stream; closing a generator must not close it
+    private static Writer keepOpen(Writer writer) {
+        return new FilterWriter(writer) {
+            @Override
+            public void flush() {
+                // Leave flushing to the buffered writer
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    static void write(JsonGenerator generator, User user, UserProjection projection) {
+        generator.writeStartObject();
+        for (String field : projection.getFields()) {
+            switch (field) {
+                case "id" -> writeNumber(generator, field, user.getId());
+                case "username" -> writeString(generator, field, user.getUsername());
+                case "email" -> writeString(generator, field, user.getEmail());
+                case "fullName" -> writeString(generator, field, user.getFullName());
+                case "createdAt" -> writeString(generator, field, user.getCreatedAt() == null
+                        ? null
+                        : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(user.getCreatedAt()));
+                case "version" -> generator.write(field, user.getVersion());
+                default -> throw new IllegalArgumentException("Unknown field " + field);
+            }
+        }
+        generator.writeEnd();
+    }
+
+    // JSON-B leaves null properties out, so the generator does the same
+    private static void writeString(JsonGenerator generator, String name, String value) {
+        if (value != null) {
+            generator.write(name, value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator generator, String name, Long value) {
+        if (value != null) {
+            generator.write(name, value);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.rest;
+
+import com.example.demo.model.User;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The subset of {@link User} properties selected with the {@code fields} query parameter,
+ * e.g. {@code fields=id,username}.
+ */
+public final class UserProjection {
+
+    private static final Map<String, Function<User, Object>> PROPERTIES = new LinkedHashMap<>();
+
+    // In JSON-B's default order, lexicographic by name, so full users written by
+    // UserJsonWriter come out the same as JSON-B writes them
+    static {
+        PROPERTIES.put("createdAt", User::getCreatedAt);
+        PROPERTIES.put("email", User::getEmail);
+        PROPERTIES.put("fullName", User::getFullName);
+        PROPERTIES.put("id", User::getId);
+        PROPERTIES.put("username", User::getUsername);
+        PROPERTIES.put("version", User::getVersion);
+    }
+
+    /** Every {@link User} property, in serialization order. */
+    public static final UserProjection ALL = new UserProjection(new ArrayList<>(PROPERTIES.keySet()));
+
+    private final List<String> fields;
+
+    private UserProjection(List<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Parses a comma separated field list.
+     *
+     * @throws IllegalArgumentException if a field is not a {@link User} property
+     */
+    public static UserProjection parse(String fieldList) {
+        List<String> fields = new ArrayList<>();
+        for (String field : fieldList.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || fields.contains(name)) {
+                continue;
+            }
+            if (!PROPERTIES.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field '" + name
+                        + "', expected one of " + PROPERTIES.keySet());
+            }
+            fields.add(name);
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+        return new UserProjection(fields);
+    }
+
+    List<String> getFields() {
+        return fields;
+    }
+
+    Map<String, Object> apply(User user) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String field : fields) {
+            projected.put(field, PROPERTIES.get(field).apply(user));
+        }
+        return projected;
+    }
+}
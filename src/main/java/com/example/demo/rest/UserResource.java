@@ -1,73 +1,539 @@
 package com.example.demo.rest;
 
+import com.example.demo.config.CompressionInterceptor;
+import com.example.demo.model.BulkItemResult;
+import com.example.demo.model.BulkOperation;
 import com.example.demo.model.User;
+import com.example.demo.service.DuplicateUserException;
+import com.example.demo.service.InvalidUserException;
 import com.example.demo.service.UserService;
+import com.example.demo.service.VersionConflictException;
 import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbException;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
+/**
+ * The user API. Reads are in-memory lookups answered on the request thread. Writes may wait
+ * for the persistence log, so they return a {@link CompletionStage}: in async mode
+ * ({@code users.async}) the work runs on a virtual thread and the request thread goes back
+ * to the server's pool while it waits. Only the service calls move off the request thread;
+ * anything that needs the request context, such as reading the body, happens before.
+ * <p>
+ * Single users and lists of users can also be exchanged as
+ * {@value UserBinaryProvider#MEDIA_TYPE} (see {@link UserBinaryProvider}). It is only used
+ * when a client asks for it in {@code Accept} or sends it as {@code Content-Type}; its lower
+ * server quality keeps JSON the answer to {@code Accept: *}{@code /*}.
+ */
 @Path("/users")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class UserResource {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_BULK_SIZE = 10000;
+    static final int DEFAULT_SEARCH_LIMIT = 10;
+    static final int MAX_SEARCH_LIMIT = 100;
+
+    private static final String BINARY = UserBinaryProvider.MEDIA_TYPE + ";qs=0.5";
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
     @Inject
     private UserService userService;
 
+    @Inject
+    private UserJsonCache jsonCache;
+
+    @Context
+    private UriInfo uriInfo;
+
+    @Context
+    private Request request;
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    /**
+     * Lists users. Without query parameters the whole store is returned. With {@code limit}
+     * and/or {@code after} the result is a page in id order, and a {@code Link rel="next"}
+     * header carries the cursor for the following page. {@code fields} restricts each
+     * user to the listed properties. {@code stream=true} writes the whole store to the
+     * response as it is read instead of building the list in memory first.
+     * <p>
+     * The ETag is the store version, so a matching {@code If-None-Match} is answered with
+     * 304 before any user is read.
+     */
+    @GET
+    public Response getAllUsers(@QueryParam("limit") Integer limit,
+                                @QueryParam("after") Long after,
+                                @QueryParam("fields") String fields,
+                                @QueryParam("stream") boolean stream) {
+        UserProjection projection = null;
+        if (fields != null) {
+            try {
+                projection = UserProjection.parse(fields);
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            }
+        }
+
+        // Read before the users, so the tag can only be older than the body, never newer
+        EntityTag tag = new EntityTag(userService.getStoreVersion());
+        Response notModified = notModified(tag);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        if (stream) {
+            UserProjection streamed = projection == null ? UserProjection.ALL : projection;
+            return Response.ok(UserJsonWriter.array(userService.allUsers(), streamed)).tag(tag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+        }
+
+        if (limit == null && after == null) {
+            return Response.ok(project(userService.getAllUsers(), projection)).tag(tag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+        }
+        UserProjection pageProjection = projection;
+        return page(limit, after, tag, users -> project(users, pageProjection));
+    }
+
+    /**
+     * Lists users as {@value UserBinaryProvider#MEDIA_TYPE}, with the same paging as
+     * {@link #getAllUsers}. Without paging the whole store is streamed. The record layout is
+     * fixed, so there is no {@code fields} parameter.
+     */
+    @GET
+    @Produces(BINARY)
+    public Response getAllUsersBinary(@QueryParam("limit") Integer limit,
+                                      @QueryParam("after") Long after) {
+        // Distinct from the JSON tag of the same URI, since the bytes differ
+        EntityTag tag = new EntityTag(userService.getStoreVersion() + "-binary");
+        Response notModified = notModified(tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        if (limit == null && after == null) {
+            return Response.ok(new GenericEntity<Iterable<User>>(userService.allUsers()) { }).tag(tag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+        }
+        return page(limit, after, tag, users -> new GenericEntity<List<User>>(users) { });
+    }
+
+    /**
+     * A page of users in id order, with a {@code Link rel="next"} header when more follow.
+     * The URI also serves other media types, so the page varies by {@code Accept}.
+     */
+    private Response page(Integer limit, Long after, EntityTag tag, Function<List<User>, Object> entity) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("limit must be between 1 and " + MAX_PAGE_SIZE)
+                    .build();
+        }
+
+        // Fetch one extra user to learn whether another page exists
+        List<User> page = userService.getUsers(after, pageSize + 1);
+        Response.ResponseBuilder response;
+        if (page.size() > pageSize) {
+            page = page.subList(0, pageSize);
+            Long nextCursor = page.get(pageSize - 1).getId();
+            response = Response.ok(entity.apply(page))
+                    .link(uriInfo.getRequestUriBuilder()
+                            .replaceQueryParam("after", nextCursor)
+                            .replaceQueryParam("limit", pageSize)
+                            .build(), "next");
+        } else {
+            response = Response.ok(entity.apply(page));
+        }
+        return response.tag(tag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+    }
+
+    /**
+     * Streams every user as newline delimited JSON, one object per line. Selected only when
+     * the client explicitly asks for {@code application/x-ndjson}; the lower server quality
+     * keeps JSON the answer to {@code Accept: *}{@code /*}.
+     */
     @GET
-    public Response getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return Response.ok(users).build();
+    @Produces(UserJsonWriter.NDJSON + ";qs=0.5")
+    public Response streamAllUsers(@QueryParam("fields") String fields) {
+        UserProjection projection = UserProjection.ALL;
+        if (fields != null) {
+            try {
+                projection = UserProjection.parse(fields);
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.TEXT_PLAIN_TYPE)
+                        .entity(e.getMessage())
+                        .build();
+            }
+        }
+        // Distinct from the JSON tag of the same URI, since the bytes differ
+        EntityTag tag = new EntityTag(userService.getStoreVersion() + "-ndjson");
+        Response notModified = notModified(tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        return Response.ok(UserJsonWriter.ndjson(userService.allUsers(), projection))
+                .type(UserJsonWriter.NDJSON)
+                .tag(tag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .build();
     }
 
+    private static Object project(List<User> users, UserProjection projection) {
+        if (projection == null) {
+            return users;
+        }
+        List<Map<String, Object>> projected = new ArrayList<>(users.size());
+        for (User user : users) {
+            projected.add(projection.apply(user));
+        }
+        return projected;
+    }
+
+    /**
+     * Returns the user with its ETag, or 304 when it matches {@code If-None-Match}. The body
+     * comes pre-encoded from the {@link UserJsonCache} when the cache holds this version.
+     */
     @GET
     @Path("/{id}")
     public Response getUserById(@PathParam("id") Long id) {
-        return userService.getUserById(id)
-                .map(user -> Response.ok(user).build())
-                .orElse(Response.status(Response.Status.NOT_FOUND).build());
+        Optional<User> user = userService.getUserById(id);
+        if (user.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        EntityTag tag = tag(user.get());
+        Response notModified = notModified(tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        return Response.ok(jsonCache.get(user.get())).tag(tag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+    }
+
+    /**
+     * The user as {@value UserBinaryProvider#MEDIA_TYPE}. It carries the same ETag as the
+     * JSON representation: the tag names a version of the user, and {@code If-Match} on
+     * updates and deletes must accept it whichever representation it came from.
+     */
+    @GET
+    @Path("/{id}")
+    @Produces(BINARY)
+    public Response getUserByIdBinary(@PathParam("id") Long id) {
+        Optional<User> user = userService.getUserById(id);
+        if (user.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        EntityTag tag = tag(user.get());
+        Response notModified = notModified(tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        return Response.ok(user.get()).tag(tag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+    }
+
+    /** Hit, miss and eviction counters of the single-user JSON cache. */
+    @GET
+    @Path("/_cache")
+    public Response getCacheStats() {
+        return Response.ok(jsonCache.getStats()).build();
     }
 
     @POST
-    public Response createUser(User user) {
+    @Consumes({MediaType.APPLICATION_JSON, UserBinaryProvider.MEDIA_TYPE})
+    @Produces({MediaType.APPLICATION_JSON, BINARY})
+    public CompletionStage<Response> createUser(User user) {
         if (user.getUsername() == null || user.getEmail() == null) {
-            return Response.status(Response.Status.BAD_REQUEST)
+            return CompletableFuture.completedStage(Response.status(Response.Status.BAD_REQUEST)
                     .entity("Username and email are required")
-                    .build();
+                    .build());
         }
-        User createdUser = userService.createUser(user);
-        return Response.status(Response.Status.CREATED).entity(createdUser).build();
+        return userService.async(() -> {
+            try {
+                User createdUser = userService.createUser(user);
+                return Response.status(Response.Status.CREATED).entity(createdUser).tag(tag(createdUser)).build();
+            } catch (DuplicateUserException e) {
+                return conflict(e);
+            } catch (InvalidUserException e) {
+                return badRequest(e);
+            }
+        });
     }
 
+    /**
+     * Applies a JSON array of create/update/delete operations in one request. The response
+     * holds one result per operation, in request order.
+     */
+    @POST
+    @Path("/_bulk")
+    public CompletionStage<Response> bulk(List<BulkOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return CompletableFuture.completedStage(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("At least one operation is required")
+                    .build());
+        }
+        if (operations.size() > MAX_BULK_SIZE) {
+            return CompletableFuture.completedStage(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("At most " + MAX_BULK_SIZE + " operations are allowed per request")
+                    .build());
+        }
+        return userService.async(() -> {
+            List<BulkItemResult> results = userService.applyBulk(operations);
+
+            long errors = results.stream().filter(r -> r.getStatus() >= 400).count();
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("items", results);
+            response.put("errors", errors);
+            return Response.ok(response).build();
+        });
+    }
+
+    /**
+     * Same as {@link #bulk(List)} for newline delimited JSON, one operation per line. A line
+     * that cannot be parsed fails on its own with status 400.
+     */
+    @POST
+    @Path("/_bulk")
+    @Consumes(UserJsonWriter.NDJSON)
+    public CompletionStage<Response> bulkNdjson(InputStream body) throws IOException {
+        List<BulkOperation> operations = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (operations.size() == MAX_BULK_SIZE) {
+                    // One past the limit is enough for bulk() to reject the request
+                    operations.add(null);
+                    break;
+                }
+                try {
+                    operations.add(JSONB.fromJson(line, BulkOperation.class));
+                } catch (JsonbException e) {
+                    operations.add(null);
+                }
+            }
+        }
+        return bulk(operations);
+    }
+
+    /**
+     * Replaces the user. With {@code If-Match} the update only happens if the user still has
+     * that ETag, checked atomically with the write; otherwise the response is 412.
+     */
     @PUT
     @Path("/{id}")
-    public Response updateUser(@PathParam("id") Long id, User user) {
-        return userService.updateUser(id, user)
-                .map(updatedUser -> Response.ok(updatedUser).build())
-                .orElse(Response.status(Response.Status.NOT_FOUND).build());
+    @Consumes({MediaType.APPLICATION_JSON, UserBinaryProvider.MEDIA_TYPE})
+    @Produces({MediaType.APPLICATION_JSON, BINARY})
+    public CompletionStage<Response> updateUser(@PathParam("id") Long id,
+                                                @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+                                                User user) {
+        IfMatch condition = IfMatch.parse(ifMatch, userService.getEpoch(), id);
+        if (condition.unsatisfiable) {
+            return CompletableFuture.completedStage(preconditionFailed(id));
+        }
+        return userService.async(() -> {
+            try {
+                Optional<User> updated = userService.updateUser(id, user, condition.versions);
+                if (updated.isEmpty()) {
+                    return condition.present ? preconditionFailed(id) : Response.status(Response.Status.NOT_FOUND).build();
+                }
+                return Response.ok(updated.get()).tag(tag(updated.get())).build();
+            } catch (DuplicateUserException e) {
+                return conflict(e);
+            } catch (InvalidUserException e) {
+                return badRequest(e);
+            } catch (VersionConflictException e) {
+                return preconditionFailed(id);
+            }
+        });
     }
 
+    /** Deletes the user, honouring {@code If-Match} the same way as {@link #updateUser}. */
     @DELETE
     @Path("/{id}")
-    public Response deleteUser(@PathParam("id") Long id) {
-        if (userService.deleteUser(id)) {
-            return Response.noContent().build();
+    public CompletionStage<Response> deleteUser(@PathParam("id") Long id,
+                                                @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch) {
+        IfMatch condition = IfMatch.parse(ifMatch, userService.getEpoch(), id);
+        if (condition.unsatisfiable) {
+            return CompletableFuture.completedStage(preconditionFailed(id));
         }
-        return Response.status(Response.Status.NOT_FOUND).build();
+        return userService.async(() -> {
+            try {
+                if (userService.deleteUser(id, condition.versions)) {
+                    return Response.noContent().build();
+                }
+            } catch (VersionConflictException e) {
+                return preconditionFailed(id);
+            }
+            return condition.present ? preconditionFailed(id) : Response.status(Response.Status.NOT_FOUND).build();
+        });
     }
 
+    /**
+     * With {@code q}, type-ahead search: the users whose username, email or full name starts
+     * with it, best first, as a list of at most {@code limit}. With {@code username} or
+     * {@code email}, the single user with exactly that username or email.
+     */
     @GET
     @Path("/search")
-    public Response searchByUsername(@QueryParam("username") String username) {
-        if (username == null || username.trim().isEmpty()) {
+    @Produces({MediaType.APPLICATION_JSON, BINARY})
+    public Response search(@QueryParam("q") String query,
+                           @QueryParam("limit") Integer limit,
+                           @QueryParam("username") String username,
+                           @QueryParam("email") String email) {
+        if (query != null && !query.isBlank()) {
+            int size = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+            if (size < 1 || size > MAX_SEARCH_LIMIT) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("limit must be between 1 and " + MAX_SEARCH_LIMIT)
+                        .build();
+            }
+            return Response.ok(new GenericEntity<List<User>>(userService.search(query, size)) { })
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .build();
+        }
+        Optional<User> match;
+        if (username != null && !username.trim().isEmpty()) {
+            match = userService.findByUsername(username);
+        } else if (email != null && !email.trim().isEmpty()) {
+            match = userService.findByEmail(email);
+        } else {
             return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Username parameter is required")
+                    .entity("A q, username or email parameter is required")
                     .build();
         }
-        return userService.findByUsername(username)
-                .map(user -> Response.ok(user).build())
+        return match
+                .map(user -> Response.ok(user).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build())
                 .orElse(Response.status(Response.Status.NOT_FOUND).build());
     }
+
+    private Response badRequest(InvalidUserException e) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .entity(e.getMessage())
+                .build();
+    }
+
+    private Response conflict(DuplicateUserException e) {
+        return Response.status(Response.Status.CONFLICT)
+                .entity(e.getMessage())
+                .build();
+    }
+
+    private Response preconditionFailed(Long id) {
+        Response.ResponseBuilder response = Response.status(Response.Status.PRECONDITION_FAILED);
+        userService.getUserById(id).ifPresent(current -> response.tag(tag(current)));
+        return response.build();
+    }
+
+    /**
+     * 304 when {@code If-None-Match} names {@code tag}, or the tag of a compressed copy of the
+     * body (see {@link CompressionInterceptor}), otherwise null. Every URI it is used for
+     * serves more than one media type, so the 304 varies by {@code Accept} like the 200.
+     */
+    private Response notModified(EntityTag tag) {
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.tag(tag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+        }
+        String ifNoneMatch = requestHeaders.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String quoted = "\"" + tag.getValue() + "\"";
+        for (String candidate : ifNoneMatch.split(",")) {
+            // If-None-Match compares weakly, so a W/ prefix does not matter
+            String value = candidate.trim();
+            String strong = value.startsWith("W/") ? value.substring(2) : value;
+            if (!strong.equals(quoted) && CompressionInterceptor.identityTag(strong).equals(quoted)) {
+                // The tag the client holds is the one a compressed 200 would carry
+                return Response.notModified()
+                        .header(HttpHeaders.ETAG, value)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .build();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Strong ETag of a single user: its id and version, which change together with its
+     * content, after the service epoch, since both start over when an unpersisted store restarts.
+     */
+    private EntityTag tag(User user) {
+        return new EntityTag(userService.getEpoch() + "-" + user.getId() + "-" + user.getVersion());
+    }
+
+    /**
+     * An {@code If-Match} header reduced to the user versions it accepts; the condition holds
+     * if the current version is any of them. {@code *} and an absent header require no
+     * particular version; tags of other users, of an earlier epoch or weak tags can never
+     * match, so a header with nothing else fails without touching the store. The tag of a
+     * compressed response names the same version as the uncompressed one.
+     */
+    public static final class IfMatch {
+        private static final IfMatch NONE = new IfMatch(false, null, false);
+        private static final IfMatch ANY = new IfMatch(true, null, false);
+        private static final IfMatch NEVER = new IfMatch(true, null, true);
+
+        public final boolean present;
+        /** The versions the header accepts, or null for any. */
+        public final Set<Long> versions;
+        public final boolean unsatisfiable;
+
+        private IfMatch(boolean present, Set<Long> versions, boolean unsatisfiable) {
+            this.present = present;
+            this.versions = versions;
+            this.unsatisfiable = unsatisfiable;
+        }
+
+        public static IfMatch parse(String header, String epoch, Long id) {
+            if (header == null || header.isBlank()) {
+                return NONE;
+            }
+            String prefix = "\"" + epoch + "-" + id + "-";
+            Set<Long> versions = new HashSet<>();
+            for (String candidate : header.split(",")) {
+                String value = CompressionInterceptor.identityTag(candidate.trim());
+                if (value.equals("*")) {
+                    return ANY;
+                }
+                if (value.startsWith(prefix) && value.endsWith("\"") && value.length() > prefix.length() + 1) {
+                    try {
+                        versions.add(Long.parseLong(value.substring(prefix.length(), value.length() - 1)));
+                    } catch (NumberFormatException e) {
+                        // Not one of our tags
+                    }
+                }
+            }
+            return versions.isEmpty() ? NEVER : new IfMatch(true, Set.copyOf(versions), false);
+        }
+    }
 }
\ No newline at end of file
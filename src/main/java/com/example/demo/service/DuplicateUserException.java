@@ -0,0 +1,27 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a create or update would give a user the username or email
+ * that already belongs to another user.
+ */
+public class DuplicateUserException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String field;
+    private final String value;
+
+    public DuplicateUserException(String field, String value) {
+        super("A user with " + field + " '" + value + "' already exists");
+        this.field = field;
+        this.value = value;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a create or update carries a user that cannot be stored as given, such as a
+ * field longer than the storage format allows.
+ */
+public class InvalidUserException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidUserException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.demo.service;
+
+import com.example.demo.model.TestResult;
+import com.example.demo.model.TestStatus;
+import com.example.demo.service.TestRunnerService.TestSuiteExecution;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.platform.engine.DiscoverySelector;
+import org.junit.platform.engine.FilterResult;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.TestSource;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.engine.support.descriptor.MethodSource;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.PostDiscoveryFilter;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+
+/**
+ * Discovers and runs JUnit tests in process through the JUnit Platform Launcher, reporting
+ * each test to a {@link TestSuiteExecution} as soon as it finishes.
+ * <p>
+ * Test classes run concurrently on the Jupiter engine's own fork-join pool, sized by
+ * {@code parallelism}; the methods of a class run one after another unless
+ * {@code concurrentMethods} is set, since integration tests often build on shared server
+ * state. Configuration files and system properties of the host JVM are ignored, so the
+ * server's environment cannot change how tests run.
+ */
+final class JUnitTestLauncher {
+
+    // Class names without a package are resolved against the package of the bundled tests
+    static final String DEFAULT_TEST_PACKAGE = "com.example.demo";
+
+    private final int parallelism;
+    private final boolean concurrentMethods;
+
+    JUnitTestLauncher(int parallelism, boolean concurrentMethods) {
+        this.parallelism = parallelism;
+        this.concurrentMethods = concurrentMethods;
+    }
+
+    /** Loaded test classes, with the names that could not be loaded. */
+    static final class Selection {
+        final List<Class<?>> classes = new ArrayList<>();
+        final List<String> missing = new ArrayList<>();
+    }
+
+    /** Counts of the tests reported by one run. */
+    static final class Summary {
+        final AtomicInteger passed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+
+        int total() {
+            return passed.get() + failed.get() + skipped.get();
+        }
+
+        @Override
+        public String toString() {
+            return passed + " passed, " + failed + " failed, " + skipped + " skipped";
+        }
+    }
+
+    static Selection select(List<String> classNames) {
+        Selection selection = new Selection();
+        ClassLoader loader = JUnitTestLauncher.class.getClassLoader();
+        for (String name : classNames) {
+            String className = name.indexOf('.') < 0 ? DEFAULT_TEST_PACKAGE + "." + name : name;
+            try {
+                selection.classes.add(Class.forName(className, false, loader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                selection.missing.add(name);
+            }
+        }
+        return selection;
+    }
+
+    /** Test methods of each class, keyed by simple class name, in discovery order. */
+    Map<String, List<String>> discover(List<Class<?>> classes) {
+        return withClassLoader(launcher -> {
+            TestPlan plan = launcher.discover(request(classes, null));
+            Map<String, List<String>> tests = new LinkedHashMap<>();
+            for (TestIdentifier root : plan.getRoots()) {
+                collect(plan, root, tests);
+            }
+            return tests;
+        });
+    }
+
+    private static void collect(TestPlan plan, TestIdentifier identifier, Map<String, List<String>> tests) {
+        TestSource source = identifier.getSource().orElse(null);
+        if (source instanceof MethodSource) {
+            MethodSource method = (MethodSource) source;
+            List<String> methods = tests.computeIfAbsent(simpleName(method.getClassName()), name -> new ArrayList<>());
+            if (!methods.contains(method.getMethodName())) {
+                methods.add(method.getMethodName());
+            }
+            return;
+        }
+        for (TestIdentifier child : plan.getChildren(identifier)) {
+            collect(plan, child, tests);
+        }
+    }
+
+    /**
+     * Runs the tests of the classes, or only the methods named {@code methodName} when it is
+     * not null, and blocks until they finish.
+     */
+    Summary run(List<Class<?>> classes, String methodName, TestSuiteExecution execution) {
+        ResultListener listener = new ResultListener(execution);
+        withClassLoader(launcher -> {
+            launcher.execute(request(classes, methodName), listener);
+            return null;
+        });
+        return listener.summary;
+    }
+
+    private LauncherDiscoveryRequest request(List<Class<?>> classes, String methodName) {
+        List<DiscoverySelector> selectors = new ArrayList<>();
+        for (Class<?> testClass : classes) {
+            selectors.add(DiscoverySelectors.selectClass(testClass));
+        }
+        LauncherDiscoveryRequestBuilder request = LauncherDiscoveryRequestBuilder.request()
+                .selectors(selectors)
+                .enableImplicitConfigurationParameters(false)
+                .configurationParameter("junit.jupiter.execution.parallel.enabled", String.valueOf(parallelism > 1))
+                .configurationParameter("junit.jupiter.execution.parallel.mode.classes.default", "concurrent")
+                .configurationParameter("junit.jupiter.execution.parallel.mode.default",
+                        concurrentMethods ? "concurrent" : "same_thread")
+                .configurationParameter("junit.jupiter.execution.parallel.config.strategy", "fixed")
+                .configurationParameter("junit.jupiter.execution.parallel.config.fixed.parallelism",
+                        String.valueOf(Math.max(1, parallelism)));
+        if (methodName != null) {
+            // Containers stay; the launcher prunes the ones left without tests
+            request.filters((PostDiscoveryFilter) descriptor -> {
+                TestSource source = descriptor.getSource().orElse(null);
+                boolean included = !(source instanceof MethodSource)
+                        || methodName.equals(((MethodSource) source).getMethodName());
+                return FilterResult.includedIf(included, () -> "Selected method", () -> "Not " + methodName);
+            });
+        }
+        return request.build();
+    }
+
+    // Engines load test classes through the context class loader, which is not always ours
+    private static <T> T withClassLoader(Function<Launcher, T> action) {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(JUnitTestLauncher.class.getClassLoader());
+        try {
+            return action.apply(LauncherFactory.create());
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /** Turns finished tests into results; called concurrently from the engine's workers. */
+    private static final class ResultListener implements TestExecutionListener {
+        private final TestSuiteExecution execution;
+        private final Summary summary = new Summary();
+        private final Map<String, Long> startTimes = new ConcurrentHashMap<>();
+        private final Map<String, Summary> classSummaries = new ConcurrentHashMap<>();
+
+        ResultListener(TestSuiteExecution execution) {
+            this.execution = execution;
+        }
+
+        @Override
+        public void executionStarted(TestIdentifier identifier) {
+            if (identifier.isTest()) {
+                startTimes.put(identifier.getUniqueId(), System.nanoTime());
+            }
+        }
+
+        @Override
+        public void executionSkipped(TestIdentifier identifier, String reason) {
+            if (identifier.isTest()) {
+                record(identifier, TestStatus.SKIPPED, reason, null, 0);
+            } else if (identifier.getSource().orElse(null) instanceof ClassSource) {
+                execution.addOutput(identifier.getDisplayName() + " skipped: " + reason);
+            }
+        }
+
+        @Override
+        public void executionFinished(TestIdentifier identifier, TestExecutionResult result) {
+            Throwable failure = result.getThrowable().orElse(null);
+            if (identifier.isTest()) {
+                Long start = startTimes.remove(identifier.getUniqueId());
+                long millis = start == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                switch (result.getStatus()) {
+                    case SUCCESSFUL:
+                        record(identifier, TestStatus.PASSED, null, null, millis);
+                        break;
+                    case ABORTED:
+                        record(identifier, TestStatus.SKIPPED, message(failure), null, millis);
+                        break;
+                    default:
+                        record(identifier, TestStatus.FAILED, message(failure), failure, millis);
+                }
+                return;
+            }
+
+            TestSource source = identifier.getSource().orElse(null);
+            if (result.getStatus() == TestExecutionResult.Status.FAILED) {
+                // A failing @BeforeAll or @AfterAll; the tests it affects may never have run
+                record(identifier, TestStatus.FAILED, message(failure), failure, 0);
+            }
+            if (source instanceof ClassSource) {
+                Summary counts = classSummaries.remove(((ClassSource) source).getClassName());
+                if (counts != null) {
+                    execution.addOutput(identifier.getDisplayName() + ": " + counts);
+                }
+            }
+        }
+
+        private void record(TestIdentifier identifier, TestStatus status, String message, Throwable failure, long millis) {
+            String className;
+            String methodName;
+            TestSource source = identifier.getSource().orElse(null);
+            if (source instanceof MethodSource) {
+                className = ((MethodSource) source).getClassName();
+                methodName = ((MethodSource) source).getMethodName();
+                // Parameterized and repeated invocations are told apart by their display name
+                if (!identifier.getDisplayName().startsWith(methodName)) {
+                    methodName = methodName + " " + identifier.getDisplayName();
+                }
+            } else if (source instanceof ClassSource) {
+                className = ((ClassSource) source).getClassName();
+                methodName = identifier.getDisplayName();
+            } else {
+                className = identifier.getDisplayName();
+                methodName = identifier.getDisplayName();
+            }
+
+            TestResult result = new TestResult(simpleName(className), methodName, status, message, millis);
+            if (failure != null) {
+                StringWriter trace = new StringWriter();
+                failure.printStackTrace(new PrintWriter(trace));
+                result.setStackTrace(trace.toString());
+            }
+            Summary counts = classSummaries.computeIfAbsent(className, name -> new Summary());
+            for (Summary summary : List.of(this.summary, counts)) {
+                switch (status) {
+                    case PASSED:
+                        summary.passed.incrementAndGet();
+                        break;
+                    case SKIPPED:
+                        summary.skipped.incrementAndGet();
+                        break;
+                    default:
+                        summary.failed.incrementAndGet();
+                }
+            }
+            execution.addResult(result);
+        }
+
+        private static String message(Throwable failure) {
+            if (failure == null) {
+                return null;
+            }
+            return failure.getMessage() != null ? failure.getMessage() : failure.getClass().getName();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.demo.service;
+
+import com.example.demo.model.LoadTestReport;
+import com.example.demo.model.User;
+import com.example.demo.service.TestRunnerService.TestSuiteExecution;
+import jakarta.json.Json;
+import jakarta.json.JsonReader;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives requests at a fixed concurrency for a set time, either straight against
+ * {@link UserService} or over HTTP against the {@code /users} endpoints of a node, and
+ * records every latency in a {@link LatencyHistogram}. In the {@code read} workload nine
+ * in ten requests read one user and the rest a page of 20; in the {@code write} workload
+ * each request creates a user and deletes it again, timed together.
+ * <p>
+ * With a target rate each worker sends on a fixed schedule and latency is measured from
+ * when a request was due, not when it was sent, so a server stall is not hidden by the
+ * generator waiting on it (coordinated omission). Without one, each worker sends its next
+ * request as soon as the last completes. Each worker is a virtual thread, so thousands of
+ * them cost little more than the requests they have in flight.
+ */
+final class LoadGenerator {
+
+    static final String TARGET_SERVICE = "service";
+    static final String TARGET_HTTP = "http";
+    static final String WORKLOAD_READ = "read";
+    static final String WORKLOAD_WRITE = "write";
+
+    private static final int SAMPLE_USERS = 1000;
+    private static final int PAGE_SIZE = 20;
+    private static final Duration HTTP_TIMEOUT = Duration.ofSeconds(10);
+
+    private final UserService userService;
+    private final String baseUrl;
+    private final String target;
+    private final String workload;
+    private final int concurrency;
+    private final int rate;
+    private final Duration duration;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong created = new AtomicLong();
+    // Keeps the users of a write load apart from those of other runs, since a failed delete leaves one behind
+    private final String namePrefix = "load-" + Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private HttpClient httpClient;
+    private long[] ids;
+
+    /** One request; returns whether it succeeded. */
+    private interface Request {
+        boolean send(long id, boolean page) throws Exception;
+    }
+
+    LoadGenerator(UserService userService, String baseUrl, String target, String workload, int concurrency,
+                  int rate, Duration duration) {
+        this.userService = userService;
+        this.baseUrl = baseUrl;
+        this.target = target;
+        this.workload = workload;
+        this.concurrency = concurrency;
+        this.rate = rate;
+        this.duration = duration;
+    }
+
+    /** Runs the load, writing progress once a second, and returns the final report. */
+    LoadTestReport run(TestSuiteExecution execution) throws InterruptedException {
+        // Read ids from the store up front so workers pick existing users at random
+        List<User> users = userService.getUsers(null, SAMPLE_USERS);
+        if (users.isEmpty()) {
+            throw new IllegalStateException("There are no users to read");
+        }
+        ids = users.stream().mapToLong(User::getId).toArray();
+        boolean http = TARGET_HTTP.equals(target);
+        Request request = WORKLOAD_WRITE.equals(workload)
+                ? (http ? this::writeHttp : this::writeService)
+                : (http ? this::sendHttp : this::callService);
+        if (http) {
+            httpClient = HttpClient.newBuilder().connectTimeout(HTTP_TIMEOUT).build();
+        }
+
+        ExecutorService workers = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("load-worker-", 1).factory());
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        execution.addOutput(String.format(Locale.ROOT, "Load test: %d workers, %s workload against %s, %s, for %ds",
+                concurrency, workload, http ? baseUrl + "/users" : "UserService",
+                rate > 0 ? rate + " requests/s" : "unthrottled", duration.getSeconds()));
+        for (int worker = 0; worker < concurrency; worker++) {
+            int offset = worker;
+            workers.execute(() -> work(request, start, end, offset));
+        }
+
+        try {
+            long lastRequests = 0;
+            long lastReport = start;
+            for (long next = start + TimeUnit.SECONDS.toNanos(1); next < end; next += TimeUnit.SECONDS.toNanos(1)) {
+                TimeUnit.NANOSECONDS.sleep(next - System.nanoTime());
+                long now = System.nanoTime();
+                long total = requests.sum();
+                execution.setLoad(report(now - start));
+                execution.addOutput(String.format(Locale.ROOT, "%4ds %,10d requests %,10.0f req/s  p50 %s  p99 %s  errors %d",
+                        TimeUnit.NANOSECONDS.toSeconds(now - start), total,
+                        (total - lastRequests) * 1e9 / (now - lastReport),
+                        millis(histogram.percentile(50)), millis(histogram.percentile(99)), errors.sum()));
+                lastRequests = total;
+                lastReport = now;
+            }
+            workers.shutdown();
+            if (!workers.awaitTermination(HTTP_TIMEOUT.toSeconds() + duration.getSeconds(), TimeUnit.SECONDS)) {
+                execution.addOutput("Some requests were still running when the report was taken");
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        LoadTestReport report = report(System.nanoTime() - start);
+        execution.setLoad(report);
+        return report;
+    }
+
+    private void work(Request request, long start, long end, int offset) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Stagger the workers' schedules so the rate is spread evenly over each interval
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(concurrency) / rate : 0;
+        long due = start + interval * offset / concurrency;
+        while (!Thread.currentThread().isInterrupted()) {
+            long begin;
+            if (interval > 0) {
+                if (due >= end) {
+                    return;
+                }
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(wait);
+                }
+                begin = due;
+                due += interval;
+            } else {
+                begin = System.nanoTime();
+                if (begin >= end) {
+                    return;
+                }
+            }
+
+            boolean succeeded;
+            try {
+                succeeded = request.send(ids[random.nextInt(ids.length)], random.nextInt(10) == 0);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                succeeded = false;
+            }
+            histogram.record(System.nanoTime() - begin);
+            requests.increment();
+            if (!succeeded) {
+                errors.increment();
+            }
+        }
+    }
+
+    private boolean callService(long id, boolean page) {
+        if (page) {
+            // The page after the last user is empty, which is still a successful read
+            userService.getUsers(id, PAGE_SIZE);
+            return true;
+        }
+        return userService.getUserById(id).isPresent();
+    }
+
+    private boolean sendHttp(long id, boolean page) throws Exception {
+        String path = page ? "/users?after=" + id + "&limit=" + PAGE_SIZE : "/users/" + id;
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(HTTP_TIMEOUT)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        return response.statusCode() < 400;
+    }
+
+    private boolean writeService(long id, boolean page) {
+        User user = userService.createUser(newUser());
+        return userService.deleteUser(user.getId());
+    }
+
+    private boolean writeHttp(long id, boolean page) throws Exception {
+        User user = newUser();
+        String body = String.format(Locale.ROOT, "{\"username\":\"%s\",\"email\":\"%s\",\"fullName\":\"%s\"}",
+                user.getUsername(), user.getEmail(), user.getFullName());
+        HttpRequest create = HttpRequest.newBuilder(URI.create(baseUrl + "/users"))
+                .timeout(HTTP_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> created = httpClient.send(create, HttpResponse.BodyHandlers.ofString());
+        if (created.statusCode() != 201) {
+            return false;
+        }
+        long createdId;
+        try (JsonReader reader = Json.createReader(new StringReader(created.body()))) {
+            createdId = reader.readObject().getJsonNumber("id").longValue();
+        }
+        HttpRequest delete = HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + createdId))
+                .timeout(HTTP_TIMEOUT)
+                .DELETE()
+                .build();
+        return httpClient.send(delete, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+    }
+
+    private User newUser() {
+        String name = namePrefix + "-" + created.incrementAndGet();
+        return new User(null, name, name + "@example.com", "Load Test");
+    }
+
+    private LoadTestReport report(long elapsedNanos) {
+        long total = requests.sum();
+        LoadTestReport report = new LoadTestReport();
+        report.setTarget(target);
+        report.setWorkload(workload);
+        report.setConcurrency(concurrency);
+        report.setTargetRate(rate);
+        report.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        report.setRequests(total);
+        report.setErrors(errors.sum());
+        report.setThroughput(elapsedNanos == 0 ? 0 : total * 1e9 / elapsedNanos);
+        report.setMeanMillis(histogram.mean() / 1e6);
+        report.setP50Millis(histogram.percentile(50) / 1e6);
+        report.setP90Millis(histogram.percentile(90) / 1e6);
+        report.setP99Millis(histogram.percentile(99) / 1e6);
+        report.setP999Millis(histogram.percentile(99.9) / 1e6);
+        report.setMaxMillis(histogram.max() / 1e6);
+        return report;
+    }
+
+    static String summary(LoadTestReport report) {
+        return String.format(Locale.ROOT, "%,d requests in %.1fs, %,.0f req/s, %d errors; latency mean %.3f ms,"
+                        + " p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms",
+                report.getRequests(), report.getDurationMillis() / 1000.0, report.getThroughput(), report.getErrors(),
+                report.getMeanMillis(), report.getP50Millis(), report.getP99Millis(), report.getP999Millis(),
+                report.getMaxMillis());
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only text log kept in fixed-size chunks, so appending never copies what was
+ * written before. Every character has a stable offset from the start of the log; readers
+ * tail it by asking for the text after the offset they saw last. Once more than
+ * {@code maxChars} are held, whole chunks are dropped from the front, so a log retains
+ * between {@code maxChars} and {@code maxChars} plus one chunk of its most recent text.
+ * Thread-safe.
+ */
+public class OutputBuffer {
+
+    static final int CHUNK_CHARS = 8192;
+
+    /** Text read from the buffer, with the offset to continue from. */
+    public static final class Slice {
+        private final long from;
+        private final long next;
+        private final String text;
+        private final boolean truncated;
+
+        Slice(long from, long next, String text, boolean truncated) {
+            this.from = from;
+            this.next = next;
+            this.text = text;
+            this.truncated = truncated;
+        }
+
+        /** Offset of the first character of {@link #getText()}. */
+        public long getFrom() { return from; }
+
+        /** Offset to pass as {@code from} on the next read. */
+        public long getNext() { return next; }
+
+        public String getText() { return text; }
+
+        /** Whether text between the requested offset and {@link #getFrom()} was dropped. */
+        public boolean isTruncated() { return truncated; }
+    }
+
+    private final int maxChars;
+
+    // Full chunks of exactly CHUNK_CHARS, oldest first, followed by the partial tail
+    private final List<String> sealed = new ArrayList<>();
+    private final StringBuilder tail = new StringBuilder();
+    private long start;
+    private long end;
+
+    public OutputBuffer(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    public synchronized void append(String text) {
+        int position = 0;
+        while (position < text.length()) {
+            int count = Math.min(CHUNK_CHARS - tail.length(), text.length() - position);
+            tail.append(text, position, position + count);
+            position += count;
+            if (tail.length() == CHUNK_CHARS) {
+                sealed.add(tail.toString());
+                tail.setLength(0);
+            }
+        }
+        end += text.length();
+        while (end - start - CHUNK_CHARS >= maxChars && !sealed.isEmpty()) {
+            sealed.remove(0);
+            start += CHUNK_CHARS;
+        }
+    }
+
+    /**
+     * Reads up to {@code maxChars} characters starting at offset {@code from}. A negative
+     * {@code from} counts back from the end, so {@code -1000} reads the last 1000 characters.
+     * Offsets before the retained text continue at the oldest retained character.
+     */
+    public synchronized Slice read(long from, int maxChars) {
+        long requested = from < 0 ? Math.max(0, end + from) : from;
+        long position = Math.min(Math.max(requested, start), end);
+        long first = position;
+        StringBuilder text = new StringBuilder((int) Math.min(maxChars, end - position));
+        while (position < end && text.length() < maxChars) {
+            int chunk = (int) ((position - start) / CHUNK_CHARS);
+            int offset = (int) ((position - start) % CHUNK_CHARS);
+            CharSequence source = chunk < sealed.size() ? sealed.get(chunk) : tail;
+            int count = Math.min(source.length() - offset, maxChars - text.length());
+            text.append(source, offset, offset + count);
+            position += count;
+        }
+        return new Slice(first, position, text.toString(), requested < start);
+    }
+
+    /** Offset just past the last character written. */
+    public synchronized long length() {
+        return end;
+    }
+
+    /** Number of characters currently held. */
+    public synchronized long retainedChars() {
+        return end - start;
+    }
+
+    /** The retained text. */
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder((int) (end - start));
+        for (String chunk : sealed) {
+            text.append(chunk);
+        }
+        return text.append(tail).toString();
+    }
+}
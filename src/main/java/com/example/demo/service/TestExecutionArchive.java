@@ -0,0 +1,235 @@
+package com.example.demo.service;
+
+import com.example.demo.model.LoadTestReport;
+import com.example.demo.model.TestResult;
+import com.example.demo.model.TestStatus;
+import com.example.demo.service.TestRunnerService.TestSuiteExecution;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Finished test executions evicted from memory, one gzip-compressed binary file per
+ * execution:
+ * <pre>
+ * int    format (1)
+ * string id, type, status
+ * time   startTime, endTime
+ * string output
+ * int    result count, then per result:
+ *        string testClass, testMethod, status, message; long duration; time timestamp;
+ *        string stackTrace
+ * bool   load report present, then:
+ *        string target, workload; int concurrency, targetRate; long durationMillis,
+ *        requests, errors; double throughput, meanMillis, p50Millis, p90Millis,
+ *        p99Millis, p999Millis, maxMillis
+ * </pre>
+ * Strings are an int UTF-8 length (-1 for null) and the bytes; times are a long UTC epoch
+ * second (Long.MIN_VALUE for null) and an int nano.
+ */
+final class TestExecutionArchive {
+
+    private static final int FORMAT = 1;
+    private static final String SUFFIX = ".exec.gz";
+
+    // Execution ids are UUIDs; anything else must not be turned into a path
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    private final Path directory;
+    private final int maxOutputChars;
+
+    /** An archive whose executions, once read back, keep at most {@code maxOutputChars} of output. */
+    TestExecutionArchive(Path directory, int maxOutputChars) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxOutputChars = maxOutputChars;
+    }
+
+    void write(TestSuiteExecution execution) throws IOException {
+        Path file = file(execution.getId());
+        Path temp = directory.resolve(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp))))) {
+            out.writeInt(FORMAT);
+            writeString(out, execution.getId());
+            writeString(out, execution.getType());
+            writeString(out, execution.getStatus());
+            writeTime(out, execution.getStartTime());
+            writeTime(out, execution.getEndTime());
+            writeString(out, execution.getOutput());
+            List<TestResult> results = List.copyOf(execution.getResults());
+            out.writeInt(results.size());
+            for (TestResult result : results) {
+                writeString(out, result.getTestClass());
+                writeString(out, result.getTestMethod());
+                writeString(out, result.getStatus() == null ? null : result.getStatus().name());
+                writeString(out, result.getMessage());
+                out.writeLong(result.getDuration());
+                writeTime(out, result.getTimestamp());
+                writeString(out, result.getStackTrace());
+            }
+            LoadTestReport load = execution.getLoad();
+            out.writeBoolean(load != null);
+            if (load != null) {
+                writeLoad(out, load);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Returns the archived execution, or null if there is none with this id. */
+    TestSuiteExecution read(String id) throws IOException {
+        if (id == null || !ID.matcher(id).matches()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file(id)))))) {
+            int format = in.readInt();
+            if (format != FORMAT) {
+                throw new IOException("Unsupported archive format " + format + " for execution " + id);
+            }
+            TestSuiteExecution execution = new TestSuiteExecution(readString(in), maxOutputChars);
+            execution.setType(readString(in));
+            execution.setStatus(readString(in));
+            execution.setStartTime(readTime(in));
+            execution.setEndTime(readTime(in));
+            execution.setOutput(readString(in));
+            int count = in.readInt();
+            List<TestResult> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String testClass = readString(in);
+                String testMethod = readString(in);
+                String status = readString(in);
+                TestResult result = new TestResult(testClass, testMethod,
+                        status == null ? null : TestStatus.valueOf(status), readString(in), in.readLong());
+                result.setTimestamp(readTime(in));
+                result.setStackTrace(readString(in));
+                results.add(result);
+            }
+            execution.setResults(results);
+            if (in.readBoolean()) {
+                execution.setLoad(readLoad(in));
+            }
+            return execution;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /** Deletes the oldest archived executions beyond {@code maxExecutions}. */
+    int prune(int maxExecutions) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(TestExecutionArchive::lastModified).reversed())
+                    .collect(Collectors.toList());
+        }
+        int deleted = 0;
+        for (Path file : files.subList(Math.min(files.size(), maxExecutions), files.size())) {
+            if (Files.deleteIfExists(file)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private Path file(String id) {
+        return directory.resolve(id + SUFFIX);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static void writeLoad(DataOutputStream out, LoadTestReport load) throws IOException {
+        writeString(out, load.getTarget());
+        writeString(out, load.getWorkload());
+        out.writeInt(load.getConcurrency());
+        out.writeInt(load.getTargetRate());
+        out.writeLong(load.getDurationMillis());
+        out.writeLong(load.getRequests());
+        out.writeLong(load.getErrors());
+        out.writeDouble(load.getThroughput());
+        out.writeDouble(load.getMeanMillis());
+        out.writeDouble(load.getP50Millis());
+        out.writeDouble(load.getP90Millis());
+        out.writeDouble(load.getP99Millis());
+        out.writeDouble(load.getP999Millis());
+        out.writeDouble(load.getMaxMillis());
+    }
+
+    private static LoadTestReport readLoad(DataInputStream in) throws IOException {
+        LoadTestReport load = new LoadTestReport();
+        load.setTarget(readString(in));
+        load.setWorkload(readString(in));
+        load.setConcurrency(in.readInt());
+        load.setTargetRate(in.readInt());
+        load.setDurationMillis(in.readLong());
+        load.setRequests(in.readLong());
+        load.setErrors(in.readLong());
+        load.setThroughput(in.readDouble());
+        load.setMeanMillis(in.readDouble());
+        load.setP50Millis(in.readDouble());
+        load.setP90Millis(in.readDouble());
+        load.setP99Millis(in.readDouble());
+        load.setP999Millis(in.readDouble());
+        load.setMaxMillis(in.readDouble());
+        return load;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        if (time == null) {
+            out.writeLong(Long.MIN_VALUE);
+            out.writeInt(0);
+        } else {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return seconds == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a test run cannot be accepted because every runner is busy and the queue of
+ * waiting runs is full.
+ */
+public class TestRunRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public TestRunRejectedException(int queued, long retryAfterSeconds) {
+        super("Test runner is busy with " + queued + " runs queued; retry in " + retryAfterSeconds + " s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /** Rough time until a queue slot frees up, based on recent run durations. */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
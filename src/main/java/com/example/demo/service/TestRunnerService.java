@@ -1,206 +1,654 @@
 package com.example.demo.service;
 
+import com.example.demo.model.LoadTestReport;
 import com.example.demo.model.TestResult;
+import com.example.demo.model.TestStatus;
+import com.example.demo.model.TestSuite;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.bind.annotation.JsonbTransient;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
 
 @ApplicationScoped
 public class TestRunnerService {
 
+    private static final Logger LOGGER = Logger.getLogger(TestRunnerService.class.getName());
+
+    private static final Metadata EXECUTIONS_TIMER = Metadata.builder()
+            .withName("tests.executions")
+            .withDescription("Run time of test and load executions, by type and final status")
+            .build();
+
     private final ConcurrentMap<String, TestSuiteExecution> testExecutions = new ConcurrentHashMap<>();
 
+    // Retention of finished executions; running ones are never evicted
+    @Inject
+    @ConfigProperty(name = "tests.retention.max-executions", defaultValue = "100")
+    private int maxExecutions = 100;
+
+    @Inject
+    @ConfigProperty(name = "tests.retention.max-age-minutes", defaultValue = "1440")
+    private long maxAgeMinutes = 1440;
+
+    @Inject
+    @ConfigProperty(name = "tests.retention.max-output-bytes", defaultValue = "16777216")
+    private long maxOutputBytes = 16 * 1024 * 1024;
+
+    @Inject
+    @ConfigProperty(name = "tests.output.max-chars", defaultValue = "1048576")
+    private int maxOutputChars = TestSuiteExecution.DEFAULT_MAX_OUTPUT_CHARS;
+
+    @Inject
+    @ConfigProperty(name = "tests.retention.sweep-interval-seconds", defaultValue = "60")
+    private long sweepIntervalSeconds = 60;
+
+    // Evicted executions are archived here when set, and can still be fetched by id
+    @Inject
+    @ConfigProperty(name = "tests.archive.dir")
+    private Optional<String> archiveDir = Optional.empty();
+
+    @Inject
+    @ConfigProperty(name = "tests.archive.max-executions", defaultValue = "1000")
+    private int maxArchivedExecutions = 1000;
+
+    // Test runs get their own pool instead of the common ForkJoinPool, because they block
+    @Inject
+    @ConfigProperty(name = "tests.executor.max-concurrent-runs", defaultValue = "2")
+    private int maxConcurrentRuns = 2;
+
+    @Inject
+    @ConfigProperty(name = "tests.executor.queue-size", defaultValue = "10")
+    private int queueSize = 10;
+
+    // Test classes run by POST /tests/run; they must be on the classpath (-Psmoke-tests)
+    @Inject
+    @ConfigProperty(name = "tests.suite.classes",
+            defaultValue = "com.example.demo.UserServiceTest,com.example.demo.UserResourceIT")
+    private List<String> suiteClasses = List.of("com.example.demo.UserServiceTest", "com.example.demo.UserResourceIT");
+
+    // Test classes of a run that execute at the same time
+    @Inject
+    @ConfigProperty(name = "tests.launcher.parallelism", defaultValue = "4")
+    private int launcherParallelism = 4;
+
+    @Inject
+    @ConfigProperty(name = "tests.launcher.concurrent-methods", defaultValue = "false")
+    private boolean launcherConcurrentMethods = false;
+
+    // Load tests; the HTTP target defaults to this node
+    @Inject
+    @ConfigProperty(name = "tests.load.base-url", defaultValue = "http://localhost:9080/openliberty-demo/api")
+    private String loadBaseUrl = "http://localhost:9080/openliberty-demo/api";
+
+    @Inject
+    @ConfigProperty(name = "tests.load.max-concurrency", defaultValue = "1000")
+    private int maxLoadConcurrency = 1000;
+
+    @Inject
+    @ConfigProperty(name = "tests.load.max-duration-seconds", defaultValue = "300")
+    private int maxLoadDurationSeconds = 300;
+
+    @Inject
+    private UserService userService;
+
+    // Absent outside CDI
+    @Inject
+    private MetricRegistry metrics;
+
+    // Container-managed threads when running in the server; plain daemon threads otherwise
+    @Resource
+    private ManagedThreadFactory managedThreadFactory;
+
+    private volatile TestExecutionArchive archive;
+    private ScheduledExecutorService sweeper;
+    private volatile ThreadPoolExecutor runExecutor;
+
+    private final AtomicLong rejectedRuns = new AtomicLong();
+    // Moving average of run durations, used to suggest when a rejected client should retry
+    private volatile long averageRunMillis = 3000;
+
     public static class TestSuiteExecution {
+        static final int DEFAULT_MAX_OUTPUT_CHARS = 1024 * 1024;
+
+        public static final String TYPE_TESTS = "TESTS";
+        public static final String TYPE_LOAD = "LOAD";
+
         private String id;
-        private String status; // RUNNING, COMPLETED, FAILED
-        private List<TestResult> results;
+        private String type = TYPE_TESTS;
+        private volatile String status; // QUEUED, RUNNING, COMPLETED, FAILED
+        private volatile List<TestResult> results;
         private LocalDateTime startTime;
-        private LocalDateTime endTime;
-        private String output;
+        private volatile LocalDateTime endTime;
+        private final int maxOutputChars;
+        private volatile OutputBuffer output;
+        private volatile LoadTestReport load;
+
+        // Maintained as results are added, so summaries never walk the results
+        private final LongAdder[] statusCounts = newCounts();
+        private final LongAdder totalDuration = new LongAdder();
+
+        // Told about every change after it is applied; guarded by this execution's lock
+        private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+        /** Receives the changes of an execution as they happen. */
+        public interface Listener {
+            void onResult(TestResult result);
+
+            /** Text appended to the output, one or more complete lines. */
+            void onOutput(String text);
+
+            void onStatus(TestSuiteExecution execution);
+        }
 
         public TestSuiteExecution(String id) {
+            this(id, DEFAULT_MAX_OUTPUT_CHARS);
+        }
+
+        /** An execution that keeps at most about {@code maxOutputChars} of its latest output. */
+        public TestSuiteExecution(String id, int maxOutputChars) {
             this.id = id;
             this.status = "RUNNING";
-            this.results = new ArrayList<>();
+            this.results = new CopyOnWriteArrayList<>();
             this.startTime = LocalDateTime.now();
-            this.output = "";
+            this.maxOutputChars = maxOutputChars;
+            this.output = new OutputBuffer(maxOutputChars);
         }
 
         // Getters and setters
         public String getId() { return id; }
         public void setId(String id) { this.id = id; }
 
+        /** {@link #TYPE_TESTS} for test runs, {@link #TYPE_LOAD} for load tests. */
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+
         public String getStatus() { return status; }
-        public void setStatus(String status) { this.status = status; }
 
-        public List<TestResult> getResults() { return results; }
-        public void setResults(List<TestResult> results) { this.results = results; }
+        public synchronized void setStatus(String status) {
+            this.status = status;
+            for (Listener listener : listeners) {
+                listener.onStatus(this);
+            }
+        }
 
-        public LocalDateTime getStartTime() { return startTime; }
-        public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+        public List<TestResult> getResults() { return results; }
 
-        public LocalDateTime getEndTime() { return endTime; }
-        public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+        public synchronized void setResults(List<TestResult> results) {
+            this.results = new CopyOnWriteArrayList<>(results);
+            for (LongAdder count : statusCounts) {
+                count.reset();
+            }
+            totalDuration.reset();
+            for (TestResult result : results) {
+                count(result);
+            }
+        }
 
-        public String getOutput() { return output; }
-        public void setOutput(String output) { this.output = output; }
+        public synchronized void addResult(TestResult result) {
+            results.add(result);
+            count(result);
+            for (Listener listener : listeners) {
+                listener.onResult(result);
+            }
+        }
 
-        public void addOutput(String line) {
-            this.output += line + "\n";
+        private void count(TestResult result) {
+            if (result.getStatus() != null) {
+                statusCounts[result.getStatus().ordinal()].increment();
+            }
+            totalDuration.add(result.getDuration());
         }
-    }
 
-    public String runTests() {
-        String executionId = UUID.randomUUID().toString();
-        TestSuiteExecution execution = new TestSuiteExecution(executionId);
-        testExecutions.put(executionId, execution);
+        private static LongAdder[] newCounts() {
+            LongAdder[] counts = new LongAdder[TestStatus.values().length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+            return counts;
+        }
 
-        // Run tests asynchronously
-        CompletableFuture.runAsync(() -> executeTests(execution));
+        /** Number of results with the given status, without walking the results. */
+        public int count(TestStatus status) {
+            return statusCounts[status.ordinal()].intValue();
+        }
 
-        return executionId;
-    }
+        /**
+         * Totals of the results so far. Taken without blocking writers, so a result added
+         * meanwhile may be counted in some totals and not yet in others.
+         */
+        public TestSuite getSummary() {
+            TestSuite summary = new TestSuite();
+            summary.setName(id);
+            summary.setExecutionTime(startTime);
+            summary.setPassedTests(count(TestStatus.PASSED));
+            summary.setFailedTests(count(TestStatus.FAILED));
+            summary.setSkippedTests(count(TestStatus.SKIPPED));
+            summary.setTotalTests(summary.getPassedTests() + summary.getFailedTests() + summary.getSkippedTests());
+            summary.setTotalDuration(totalDuration.sum());
+            return summary;
+        }
 
-    public TestSuiteExecution getTestExecution(String executionId) {
-        return testExecutions.get(executionId);
-    }
+        public LocalDateTime getStartTime() { return startTime; }
+        public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
 
-    public List<TestSuiteExecution> getAllExecutions() {
-        return new ArrayList<>(testExecutions.values());
-    }
+        public LocalDateTime getEndTime() { return endTime; }
+        public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
 
-    private void executeTests(TestSuiteExecution execution) {
-        try {
-            execution.addOutput("Starting test execution...");
-            execution.addOutput("Running UserService tests...");
+        /** Report of a load test, updated while it runs; null for test runs. */
+        public LoadTestReport getLoad() { return load; }
+        public void setLoad(LoadTestReport load) { this.load = load; }
 
-            // Simulate running UserService tests
-            runUserServiceTests(execution);
+        /** The retained output; use {@link #getOutputBuffer()} to read it in parts. */
+        public String getOutput() { return output.toString(); }
 
-            execution.addOutput("Running API integration tests...");
+        public synchronized void setOutput(String text) {
+            OutputBuffer replaced = new OutputBuffer(maxOutputChars);
+            if (text != null) {
+                replaced.append(text);
+            }
+            this.output = replaced;
+        }
 
-            // Simulate running integration tests
-            runIntegrationTests(execution);
+        @JsonbTransient
+        public OutputBuffer getOutputBuffer() { return output; }
 
-            execution.setStatus("COMPLETED");
-            execution.setEndTime(LocalDateTime.now());
-            execution.addOutput("All tests completed successfully!");
+        public synchronized void addOutput(String line) {
+            String text = line + "\n";
+            output.append(text);
+            for (Listener listener : listeners) {
+                listener.onOutput(text);
+            }
+        }
 
-        } catch (Exception e) {
-            execution.setStatus("FAILED");
-            execution.setEndTime(LocalDateTime.now());
-            execution.addOutput("Test execution failed: " + e.getMessage());
+        /** Approximate memory held by the output: one byte per character. */
+        @JsonbTransient
+        public long getOutputBytes() {
+            return output.retainedChars();
         }
-    }
 
-    private void runUserServiceTests(TestSuiteExecution execution) {
-        try {
-            Thread.sleep(1000); // Simulate test execution time
+        /**
+         * Replays the current state to the listener (each result, the output so far, the
+         * status) and then registers it for changes, with no change missed or repeated in
+         * between.
+         */
+        public void subscribe(Listener listener) {
+            replay(listener, () -> listeners.add(listener));
+        }
 
-            // Simulate test results
-            execution.getResults().add(new TestResult(
-                "UserServiceTest", "testGetAllUsers", "PASSED",
-                "Successfully retrieved all users", 45));
+        /**
+         * Replays the current state to {@code listener} and then runs {@code then} before any
+         * further change is applied, e.g. to attach the receiver to a shared listener.
+         */
+        public synchronized void replay(Listener listener, Runnable then) {
+            for (TestResult result : results) {
+                listener.onResult(result);
+            }
+            if (output.retainedChars() > 0) {
+                listener.onOutput(output.toString());
+            }
+            listener.onStatus(this);
+            then.run();
+        }
 
-            execution.getResults().add(new TestResult(
-                "UserServiceTest", "testCreateUser", "PASSED",
-                "Successfully created new user", 32));
+        public void unsubscribe(Listener listener) {
+            listeners.remove(listener);
+        }
 
-            execution.getResults().add(new TestResult(
-                "UserServiceTest", "testGetUserById", "PASSED",
-                "Successfully retrieved user by ID", 28));
+        /** Whether the execution has ended, as COMPLETED or FAILED. */
+        @JsonbTransient
+        public boolean isFinished() {
+            String current = status;
+            return "COMPLETED".equals(current) || "FAILED".equals(current);
+        }
+    }
 
-            execution.getResults().add(new TestResult(
-                "UserServiceTest", "testUpdateUser", "PASSED",
-                "Successfully updated user", 41));
+    public TestRunnerService() {
+    }
 
-            execution.getResults().add(new TestResult(
-                "UserServiceTest", "testDeleteUser", "PASSED",
-                "Successfully deleted user", 35));
+    /** A service outside CDI with the given retention limits and optional archive directory. */
+    public TestRunnerService(int maxExecutions, Duration maxAge, long maxOutputBytes, Path archiveDir) throws IOException {
+        this.maxExecutions = maxExecutions;
+        this.maxAgeMinutes = maxAge.toMinutes();
+        this.maxOutputBytes = maxOutputBytes;
+        if (archiveDir != null) {
+            this.archive = new TestExecutionArchive(archiveDir, maxOutputChars);
+        }
+    }
 
-            execution.getResults().add(new TestResult(
-                "UserServiceTest", "testFindByUsername", "PASSED",
-                "Successfully found user by username", 29));
+    @PostConstruct
+    void init() {
+        if (archiveDir.isPresent()) {
+            try {
+                archive = new TestExecutionArchive(Path.of(archiveDir.get()), maxOutputChars);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open test execution archive in " + archiveDir.get(), e);
+            }
+        }
+        if (sweepIntervalSeconds > 0) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "test-execution-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalSeconds, sweepIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
 
-            execution.addOutput("UserService tests: 6 passed, 0 failed");
+    @PreDestroy
+    void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        if (runExecutor != null) {
+            runExecutor.shutdownNow();
+        }
+    }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    private ThreadPoolExecutor runExecutor() {
+        ThreadPoolExecutor executor = runExecutor;
+        if (executor != null) {
+            return executor;
+        }
+        synchronized (this) {
+            if (runExecutor == null) {
+                ThreadFactory threads = managedThreadFactory;
+                if (threads == null) {
+                    AtomicInteger count = new AtomicInteger();
+                    threads = runnable -> {
+                        Thread thread = new Thread(runnable, "test-run-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    };
+                }
+                runExecutor = new ThreadPoolExecutor(maxConcurrentRuns, maxConcurrentRuns, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(Math.max(1, queueSize)), threads, new ThreadPoolExecutor.AbortPolicy());
+            }
+            return runExecutor;
         }
     }
 
-    private void runIntegrationTests(TestSuiteExecution execution) {
+    /**
+     * Queues the execution on the run executor. The execution is registered before it is
+     * queued so its id can be polled at once, and removed again if the queue is full.
+     *
+     * @throws TestRunRejectedException if all runners are busy and the queue is full
+     */
+    private String submit(TestSuiteExecution execution, Runnable run) {
+        execution.setStatus("QUEUED");
+        testExecutions.put(execution.getId(), execution);
+        ThreadPoolExecutor executor = runExecutor();
         try {
-            Thread.sleep(2000); // Simulate test execution time
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                execution.setStatus("RUNNING");
+                try {
+                    run.run();
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+                    averageRunMillis = (averageRunMillis * 7 + millis) / 8;
+                    if (metrics != null) {
+                        metrics.timer(EXECUTIONS_TIMER, new Tag("type", execution.getType()),
+                                new Tag("status", execution.getStatus())).update(Duration.ofNanos(nanos));
+                    }
+                    evictExecutions();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            testExecutions.remove(execution.getId(), execution);
+            rejectedRuns.incrementAndGet();
+            int queued = executor.getQueue().size();
+            // The queue drains maxConcurrentRuns at a time; one slot frees after one round
+            long retryAfter = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(averageRunMillis
+                    * Math.max(1, queued / Math.max(1, maxConcurrentRuns))));
+            throw new TestRunRejectedException(queued, retryAfter);
+        }
+        return execution.getId();
+    }
 
-            // Simulate integration test results
-            execution.getResults().add(new TestResult(
-                "UserResourceIT", "testHealthEndpoint", "PASSED",
-                "Health endpoint responding correctly", 156));
+    /** Active and queued runs of the run executor, with its limits and totals. */
+    public Map<String, Object> getExecutorStats() {
+        ThreadPoolExecutor executor = runExecutor();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeRuns", executor.getActiveCount());
+        stats.put("queuedRuns", executor.getQueue().size());
+        stats.put("maxConcurrentRuns", executor.getMaximumPoolSize());
+        stats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        stats.put("completedRuns", executor.getCompletedTaskCount());
+        stats.put("rejectedRuns", rejectedRuns.get());
+        stats.put("averageRunMillis", averageRunMillis);
+        return stats;
+    }
 
-            execution.getResults().add(new TestResult(
-                "UserResourceIT", "testGetAllUsers", "PASSED",
-                "REST API returns all users", 203));
+    private void sweep() {
+        try {
+            evictExecutions();
+            TestExecutionArchive current = archive;
+            if (current != null) {
+                current.prune(maxArchivedExecutions);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Test execution sweep failed", e);
+        }
+    }
+
+    /**
+     * Evicts finished executions that are older than the maximum age, then the oldest
+     * finished ones until the count and total output are within their limits. Evicted
+     * executions are archived when an archive is configured.
+     *
+     * @return the number of executions evicted
+     */
+    public synchronized int evictExecutions() {
+        List<TestSuiteExecution> finished = testExecutions.values().stream()
+                .filter(execution -> execution.getEndTime() != null)
+                .sorted(Comparator.comparing(TestSuiteExecution::getEndTime))
+                .collect(Collectors.toList());
+        int count = testExecutions.size();
+        long outputBytes = 0;
+        for (TestSuiteExecution execution : testExecutions.values()) {
+            outputBytes += execution.getOutputBytes();
+        }
 
-            execution.getResults().add(new TestResult(
-                "UserResourceIT", "testCreateUser", "PASSED",
-                "REST API creates user successfully", 189));
+        LocalDateTime expiry = LocalDateTime.now().minusMinutes(maxAgeMinutes);
+        int evicted = 0;
+        for (TestSuiteExecution execution : finished) {
+            boolean expired = execution.getEndTime().isBefore(expiry);
+            if (!expired && count <= maxExecutions && outputBytes <= maxOutputBytes) {
+                break;
+            }
+            if (testExecutions.remove(execution.getId(), execution)) {
+                archive(execution);
+                count--;
+                outputBytes -= execution.getOutputBytes();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
 
-            execution.getResults().add(new TestResult(
-                "UserResourceIT", "testGetUserById", "PASSED",
-                "REST API retrieves user by ID", 145));
+    private void archive(TestSuiteExecution execution) {
+        TestExecutionArchive current = archive;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.write(execution);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to archive test execution " + execution.getId(), e);
+        }
+    }
 
-            execution.getResults().add(new TestResult(
-                "UserResourceIT", "testDeleteUser", "PASSED",
-                "REST API deletes user successfully", 167));
+    /**
+     * Queues a run of all tests of the configured suite classes.
+     *
+     * @throws TestRunRejectedException if the run queue is full
+     */
+    public String runTests() {
+        TestSuiteExecution execution = new TestSuiteExecution(UUID.randomUUID().toString(), maxOutputChars);
+        return submit(execution, () -> executeTests(execution, suiteClasses, null));
+    }
 
-            execution.getResults().add(new TestResult(
-                "UserResourceIT", "testSearchByUsername", "PASSED",
-                "REST API searches by username", 134));
+    /** Returns the execution from memory or, once evicted, from the archive; null if unknown. */
+    public TestSuiteExecution getTestExecution(String executionId) {
+        TestSuiteExecution execution = testExecutions.get(executionId);
+        TestExecutionArchive current = archive;
+        if (execution != null || current == null) {
+            return execution;
+        }
+        try {
+            return current.read(executionId);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read archived test execution " + executionId, e);
+            return null;
+        }
+    }
 
-            execution.getResults().add(new TestResult(
-                "UserResourceIT", "testSearchByUsernameNotFound", "PASSED",
-                "REST API handles user not found", 98));
+    /** Executions still held in memory; archived ones are only available by id. */
+    public List<TestSuiteExecution> getAllExecutions() {
+        return new ArrayList<>(testExecutions.values());
+    }
 
-            execution.addOutput("Integration tests: 7 passed, 0 failed");
+    private void executeTests(TestSuiteExecution execution, List<String> classNames, String methodName) {
+        try {
+            JUnitTestLauncher.Selection selection = JUnitTestLauncher.select(classNames);
+            for (String missing : selection.missing) {
+                execution.addOutput("Test class " + missing + " is not on the classpath");
+            }
+            if (selection.classes.isEmpty()) {
+                finish(execution, "FAILED", "No test classes found; build with -Psmoke-tests to bundle them");
+                return;
+            }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            execution.addOutput("Running " + selection.classes.stream().map(Class::getSimpleName)
+                    .collect(Collectors.joining(", ")) + (methodName == null ? "" : " #" + methodName)
+                    + " with parallelism " + launcherParallelism + "...");
+            JUnitTestLauncher.Summary summary = launcher().run(selection.classes, methodName, execution);
+            if (summary.total() == 0) {
+                finish(execution, "FAILED", "No tests matched");
+            } else {
+                finish(execution, "COMPLETED", "Tests completed: " + summary);
+            }
+        } catch (Exception | LinkageError e) {
+            LOGGER.log(Level.WARNING, "Test execution " + execution.getId() + " failed", e);
+            finish(execution, "FAILED", "Test execution failed: " + e.getMessage());
         }
     }
 
-    public String runSpecificTest(String testClass, String testMethod) {
-        String executionId = UUID.randomUUID().toString();
-        TestSuiteExecution execution = new TestSuiteExecution(executionId);
-        testExecutions.put(executionId, execution);
+    // Output first and status last, so the status change is the final event listeners see
+    private static void finish(TestSuiteExecution execution, String status, String message) {
+        execution.addOutput(message);
+        execution.setEndTime(LocalDateTime.now());
+        execution.setStatus(status);
+    }
 
-        // Run specific test asynchronously
-        CompletableFuture.runAsync(() -> {
-            try {
-                execution.addOutput("Running specific test: " + testClass + "." + testMethod);
-                Thread.sleep(500); // Simulate test execution
+    private JUnitTestLauncher launcher() {
+        return new JUnitTestLauncher(launcherParallelism, launcherConcurrentMethods);
+    }
 
-                // Simulate specific test result
-                execution.getResults().add(new TestResult(
-                    testClass, testMethod, "PASSED",
-                    "Test executed successfully", 87));
+    /**
+     * Test methods of the configured suite classes that are on the classpath, keyed by
+     * simple class name.
+     */
+    public Map<String, List<String>> getAvailableTests() {
+        return launcher().discover(JUnitTestLauncher.select(suiteClasses).classes);
+    }
 
-                execution.setStatus("COMPLETED");
-                execution.setEndTime(LocalDateTime.now());
-                execution.addOutput("Test completed successfully!");
+    /**
+     * Queues a load test that reads users ({@code read}) or creates and deletes them
+     * ({@code write}) at {@code concurrency} for {@code durationSeconds}, through
+     * {@link UserService} ({@code service}) or the REST API ({@code http}). A {@code rate}
+     * of 0 sends requests as fast as the workers can.
+     *
+     * @throws IllegalArgumentException if a parameter is out of range
+     * @throws TestRunRejectedException if the run queue is full
+     */
+    public String runLoadTest(String target, String workload, int concurrency, int rate, int durationSeconds) {
+        if (!LoadGenerator.TARGET_SERVICE.equals(target) && !LoadGenerator.TARGET_HTTP.equals(target)) {
+            throw new IllegalArgumentException("target must be service or http");
+        }
+        if (!LoadGenerator.WORKLOAD_READ.equals(workload) && !LoadGenerator.WORKLOAD_WRITE.equals(workload)) {
+            throw new IllegalArgumentException("workload must be read or write");
+        }
+        if (concurrency < 1 || concurrency > maxLoadConcurrency) {
+            throw new IllegalArgumentException("concurrency must be between 1 and " + maxLoadConcurrency);
+        }
+        if (rate < 0) {
+            throw new IllegalArgumentException("rate must not be negative");
+        }
+        if (durationSeconds < 1 || durationSeconds > maxLoadDurationSeconds) {
+            throw new IllegalArgumentException("duration must be between 1 and " + maxLoadDurationSeconds + " seconds");
+        }
 
+        TestSuiteExecution execution = new TestSuiteExecution(UUID.randomUUID().toString(), maxOutputChars);
+        execution.setType(TestSuiteExecution.TYPE_LOAD);
+        LoadGenerator generator = new LoadGenerator(userService(), loadBaseUrl, target, workload, concurrency, rate,
+                Duration.ofSeconds(durationSeconds));
+        return submit(execution, () -> {
+            try {
+                LoadTestReport report = generator.run(execution);
+                finish(execution, "COMPLETED", "Load test completed: " + LoadGenerator.summary(report));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finish(execution, "FAILED", "Load test interrupted");
             } catch (Exception e) {
-                execution.setStatus("FAILED");
-                execution.setEndTime(LocalDateTime.now());
-                execution.addOutput("Test failed: " + e.getMessage());
+                LOGGER.log(Level.WARNING, "Load test " + execution.getId() + " failed", e);
+                finish(execution, "FAILED", "Load test failed: " + e.getMessage());
             }
         });
+    }
 
-        return executionId;
+    // Outside CDI, load tests run against a service of their own with the seed users
+    private synchronized UserService userService() {
+        if (userService == null) {
+            userService = new UserService();
+        }
+        return userService;
+    }
+
+    /**
+     * Queues a run of a single test method. A class name without a package is taken to be
+     * in the package of the bundled tests; any other test class on the classpath can be
+     * named in full.
+     *
+     * @throws TestRunRejectedException if the run queue is full
+     */
+    public String runSpecificTest(String testClass, String testMethod) {
+        TestSuiteExecution execution = new TestSuiteExecution(UUID.randomUUID().toString(), maxOutputChars);
+        return submit(execution, () -> executeTests(execution, List.of(testClass), testMethod));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,202 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Type-ahead search over username, email and full name. Each field keeps a sorted set of
+ * lowercase (token, user id) entries, so all tokens starting with a prefix are one range of
+ * the set and a search reads little more than the entries it returns: its cost depends on
+ * the limit, not on the number of users. The full name is indexed from the start of each of
+ * its words, so both "john d" and "doe" find John Doe.
+ * <p>
+ * To keep a user's entries small whatever it stores, a field is indexed from at most
+ * {@value #MAX_TOKENS} word starts and each token, like the query, is cut to
+ * {@value #MAX_TOKEN_LENGTH} characters; a long query matches on those first characters.
+ * <p>
+ * Results are ranked by field (username, then email, then full name) and alphabetically
+ * within a field, so an exact match comes before longer tokens it is a prefix of. When that
+ * leaves the result short and the query has {@value #MIN_FUZZY_LENGTH} to
+ * {@value #MAX_FUZZY_LENGTH} characters, prefixes one typo away from it (a character
+ * deleted, swapped with the next or replaced) fill the rest. Like the rest of the store,
+ * updates are weakly consistent with searches.
+ */
+final class UserSearchIndex {
+
+    static final int MIN_FUZZY_LENGTH = 4;
+    // Typo variants grow with the query, about 40 set lookups per character
+    static final int MAX_FUZZY_LENGTH = 32;
+    static final int MAX_TOKEN_LENGTH = 64;
+    static final int MAX_TOKENS = 8;
+
+    private static final String FUZZY_ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+    private record Entry(String token, long id) {
+    }
+
+    private static final Comparator<Entry> ORDER =
+            Comparator.comparing(Entry::token).thenComparingLong(Entry::id);
+
+    private final NavigableSet<Entry> usernames = new ConcurrentSkipListSet<>(ORDER);
+    private final NavigableSet<Entry> emails = new ConcurrentSkipListSet<>(ORDER);
+    private final NavigableSet<Entry> names = new ConcurrentSkipListSet<>(ORDER);
+
+    void add(User user) {
+        long id = user.getId();
+        addAll(usernames, tokens(user.getUsername(), false), id);
+        addAll(emails, tokens(user.getEmail(), false), id);
+        addAll(names, tokens(user.getFullName(), true), id);
+    }
+
+    void remove(User user) {
+        long id = user.getId();
+        removeAll(usernames, tokens(user.getUsername(), false), id, List.of());
+        removeAll(emails, tokens(user.getEmail(), false), id, List.of());
+        removeAll(names, tokens(user.getFullName(), true), id, List.of());
+    }
+
+    /** Moves a user from its previous tokens to its current ones; unchanged fields are left alone. */
+    void replace(User previous, User current) {
+        long id = current.getId();
+        replace(usernames, previous.getUsername(), current.getUsername(), false, id);
+        replace(emails, previous.getEmail(), current.getEmail(), false, id);
+        replace(names, previous.getFullName(), current.getFullName(), true, id);
+    }
+
+    private static void replace(NavigableSet<Entry> field, String previous, String current, boolean words, long id) {
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+        // Add before removing, so a search never misses a user whose tokens did not change
+        List<String> added = tokens(current, words);
+        addAll(field, added, id);
+        removeAll(field, tokens(previous, words), id, added);
+    }
+
+    void clear() {
+        usernames.clear();
+        emails.clear();
+        names.clear();
+    }
+
+    /** Ids of up to {@code limit} users matching {@code query}, best first. */
+    List<Long> search(String query, int limit) {
+        String prefix = cut(normalize(query), 0);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> ids = new LinkedHashSet<>();
+        collect(usernames, prefix, ids, limit);
+        collect(emails, prefix, ids, limit);
+        collect(names, prefix, ids, limit);
+        if (ids.size() < limit && prefix.length() >= MIN_FUZZY_LENGTH && prefix.length() <= MAX_FUZZY_LENGTH) {
+            for (String variant : typos(prefix)) {
+                collect(usernames, variant, ids, limit);
+                collect(names, variant, ids, limit);
+                if (ids.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static void collect(NavigableSet<Entry> field, String prefix, Set<Long> ids, int limit) {
+        if (ids.size() >= limit) {
+            return;
+        }
+        for (Entry entry : field.tailSet(new Entry(prefix, Long.MIN_VALUE), true)) {
+            if (!entry.token().startsWith(prefix)) {
+                return;
+            }
+            ids.add(entry.id());
+            if (ids.size() >= limit) {
+                return;
+            }
+        }
+    }
+
+    /** Every string one deletion, adjacent swap or substitution away from {@code prefix}. */
+    private static List<String> typos(String prefix) {
+        List<String> variants = new ArrayList<>();
+        StringBuilder variant = new StringBuilder(prefix);
+        for (int i = 0; i < prefix.length(); i++) {
+            variants.add(new StringBuilder(prefix).deleteCharAt(i).toString());
+            if (i + 1 < prefix.length() && prefix.charAt(i) != prefix.charAt(i + 1)) {
+                variant.setCharAt(i, prefix.charAt(i + 1));
+                variant.setCharAt(i + 1, prefix.charAt(i));
+                variants.add(variant.toString());
+                variant.setCharAt(i, prefix.charAt(i));
+                variant.setCharAt(i + 1, prefix.charAt(i + 1));
+            }
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            for (int c = 0; c < FUZZY_ALPHABET.length(); c++) {
+                char replacement = FUZZY_ALPHABET.charAt(c);
+                if (replacement != prefix.charAt(i)) {
+                    variant.setCharAt(i, replacement);
+                    variants.add(variant.toString());
+                }
+            }
+            variant.setCharAt(i, prefix.charAt(i));
+        }
+        return variants;
+    }
+
+    /**
+     * The whole value, plus the rest of it from each later word when {@code words} is set,
+     * up to {@value #MAX_TOKENS} tokens of at most {@value #MAX_TOKEN_LENGTH} characters.
+     */
+    private static List<String> tokens(String value, boolean words) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        if (!words || normalized.indexOf(' ') < 0) {
+            return List.of(cut(normalized, 0));
+        }
+        List<String> tokens = new ArrayList<>();
+        tokens.add(cut(normalized, 0));
+        for (int space = normalized.indexOf(' '); space >= 0 && tokens.size() < MAX_TOKENS;
+                space = normalized.indexOf(' ', space + 1)) {
+            tokens.add(cut(normalized, space + 1));
+        }
+        return tokens;
+    }
+
+    /** Up to {@value #MAX_TOKEN_LENGTH} characters of {@code value} from {@code start}. */
+    private static String cut(String value, int start) {
+        return value.substring(start, Math.min(value.length(), start + MAX_TOKEN_LENGTH));
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        // Returns the same instance when already lowercase, so tokens share the user's strings
+        String lower = value.strip().toLowerCase(Locale.ROOT);
+        return lower.indexOf("  ") < 0 ? lower : lower.replaceAll(" {2,}", " ");
+    }
+
+    private static void addAll(NavigableSet<Entry> field, List<String> tokens, long id) {
+        for (String token : tokens) {
+            field.add(new Entry(token, id));
+        }
+    }
+
+    private static void removeAll(NavigableSet<Entry> field, List<String> tokens, long id, List<String> kept) {
+        for (String token : tokens) {
+            if (!kept.contains(token)) {
+                field.remove(new Entry(token, id));
+            }
+        }
+    }
+}
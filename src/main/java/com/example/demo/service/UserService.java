@@ -1,16 +1,111 @@
 package com.example.demo.service;
 
+import com.example.demo.model.BulkItemResult;
+import com.example.demo.model.BulkOperation;
 import com.example.demo.model.User;
+import com.example.demo.persistence.FsyncPolicy;
+import com.example.demo.persistence.UserCodec;
+import com.example.demo.persistence.UserPersistence;
+import com.example.demo.store.HeapUserStore;
+import com.example.demo.store.IdBlocks;
+import com.example.demo.store.OffHeapUserStore;
+import com.example.demo.store.ShardedUserStore;
+import com.example.demo.store.UserStore;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.annotation.Timed;
 
 @ApplicationScoped
 public class UserService {
 
-    private final Map<Long, User> users = new ConcurrentHashMap<>();
-    private final AtomicLong idCounter = new AtomicLong(0);
+    private static final Logger LOGGER = Logger.getLogger(UserService.class.getName());
+
+    // Bumped after every change becomes visible, so a version read before listing users is
+    // never newer than the listing; together with the boot epoch it forms the list ETag.
+    // A LongAdder so concurrent writers do not all contend on one counter.
+    private final LongAdder storeVersion = new LongAdder();
+    private final long epoch = System.currentTimeMillis();
+
+    // Told the id of every user that was created, updated or deleted
+    private final List<LongConsumer> changeListeners = new CopyOnWriteArrayList<>();
+
+    // Replaced only by init(), before the bean is handed out; also hands out the ids
+    private ShardedUserStore store = new ShardedUserStore(1, (shard, blocks) -> new HeapUserStore());
+
+    // Secondary unique indexes: username (exact) and email (case-insensitive) -> user id.
+    // An index entry is reserved with putIfAbsent before the user becomes visible, so two
+    // concurrent writers can never both claim the same key.
+    private final ConcurrentMap<String, Long> usernameIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> emailIndex = new ConcurrentHashMap<>();
+    private final UserSearchIndex searchIndex = new UserSearchIndex();
+    private final LongAdder indexLookups = new LongAdder();
+    private final LongAdder indexHits = new LongAdder();
+
+    // heap (default), offheap (direct buffers) or mapped (memory-mapped scratch file)
+    @Inject
+    @ConfigProperty(name = "users.store", defaultValue = "heap")
+    private String storeType = "heap";
+
+    @Inject
+    @ConfigProperty(name = "users.store.mapped-file", defaultValue = "users.store")
+    private String mappedFile = "users.store";
+
+    @Inject
+    @ConfigProperty(name = "users.store.chunk-mb", defaultValue = "64")
+    private int chunkMegabytes = 64;
+
+    // 0 means one shard per available processor
+    @Inject
+    @ConfigProperty(name = "users.store.shards", defaultValue = "0")
+    private int shards = 0;
+
+    // Persistence is off unless a directory is configured
+    @Inject
+    @ConfigProperty(name = "users.persistence.dir")
+    private Optional<String> persistenceDir = Optional.empty();
+
+    @Inject
+    @ConfigProperty(name = "users.persistence.fsync", defaultValue = "INTERVAL")
+    private String fsyncPolicy = "INTERVAL";
+
+    @Inject
+    @ConfigProperty(name = "users.persistence.fsync-interval-ms", defaultValue = "100")
+    private long fsyncIntervalMillis = 100;
+
+    @Inject
+    @ConfigProperty(name = "users.persistence.snapshot-interval-seconds", defaultValue = "300")
+    private long snapshotIntervalSeconds = 300;
+
+    // When on, async() runs operations on virtual threads instead of the caller's thread
+    @Inject
+    @ConfigProperty(name = "users.async", defaultValue = "false")
+    private boolean asyncMode = false;
+
+    private final ExecutorService virtualThreads = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("user-async-", 0).factory());
+
+    private volatile UserPersistence persistence;
 
     public UserService() {
         // Initialize with sample data
@@ -19,37 +114,612 @@ public class UserService {
         createUser(new User(null, "bob_wilson", "bob@example.com", "Bob Wilson"));
     }
 
+    /** A service outside CDI, with async mode on or off. */
+    public UserService(boolean asyncMode) {
+        this();
+        this.asyncMode = asyncMode;
+    }
+
+    /**
+     * Switches to the configured store and opens the persistence directory when one is
+     * configured. Whatever that directory holds replaces the sample data; an empty
+     * directory keeps the sample data and snapshots it.
+     */
+    @PostConstruct
+    void init() {
+        String type = storeType.trim().toLowerCase(Locale.ROOT);
+        int shardCount = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        if ("heap".equals(type) && shardCount == 1 && persistenceDir.isEmpty()) {
+            return;
+        }
+        List<User> sampleData = getAllUsers();
+        clear();
+        if (!"heap".equals(type) || shardCount > 1) {
+            store = new ShardedUserStore(shardCount, (shard, blocks) -> createStore(type, shard, blocks));
+            LOGGER.info("Using " + type + " user store in " + shardCount + " shards");
+        }
+        if (persistenceDir.isEmpty()) {
+            sampleData.forEach(this::restore);
+            return;
+        }
+
+        Path directory = Path.of(persistenceDir.get());
+        try {
+            UserPersistence opened = UserPersistence.open(directory,
+                    FsyncPolicy.valueOf(fsyncPolicy.trim().toUpperCase(Locale.ROOT)), fsyncIntervalMillis,
+                    new UserPersistence.Replay() {
+                        @Override
+                        public void upsert(User user) {
+                            restore(user);
+                        }
+
+                        @Override
+                        public void delete(long id) {
+                            forget(id);
+                        }
+                    });
+            if (opened.isRecovered()) {
+                store.advanceIds(opened.getRecoveredIdHighWater());
+            } else {
+                sampleData.forEach(this::restore);
+                opened.snapshot(allUsers(), store::getIdHighWater);
+            }
+            persistence = opened;
+            opened.scheduleSnapshots(snapshotIntervalSeconds, allUsers(), store::getIdHighWater);
+            LOGGER.info("User store persisted to " + directory + " with " + store.size() + " users");
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open user persistence in " + directory, e);
+        }
+    }
+
+    private UserStore createStore(String type, int shard, IdBlocks blocks) {
+        // The chunk size is split between the shards, which each reserve chunks of their own
+        int chunkBytes = Math.max(1024 * 1024, chunkMegabytes * 1024 * 1024 / blocks.shards());
+        Path shardFile = blocks.shards() == 1 ? Path.of(mappedFile) : Path.of(mappedFile + "-" + shard);
+        try {
+            switch (type) {
+                case "heap":
+                    return new HeapUserStore();
+                case "offheap":
+                    return new OffHeapUserStore(null, chunkBytes, blocks, shard);
+                case "mapped":
+                    return new OffHeapUserStore(shardFile, chunkBytes, blocks, shard);
+                default:
+                    throw new IllegalStateException("Unknown users.store '" + type
+                            + "', expected heap, offheap or mapped");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create " + type + " user store", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        virtualThreads.shutdown();
+        UserPersistence current = persistence;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to close user persistence", e);
+            }
+        }
+        try {
+            store.close();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to close user store", e);
+        }
+    }
+
+    /**
+     * Runs an operation that may block, such as a write waiting for the log, and returns a
+     * stage completed with its result. In async mode ({@code users.async}) the operation
+     * runs on a virtual thread of its own and the caller's thread is free as soon as this
+     * returns; otherwise it runs on the calling thread, which also gets any exception it
+     * throws. Call the operations through the injected bean so they stay timed, and the
+     * current trace context goes along to the virtual thread.
+     */
+    public <T> CompletionStage<T> async(Supplier<T> operation) {
+        if (!asyncMode) {
+            return CompletableFuture.completedStage(operation.get());
+        }
+        return CompletableFuture.supplyAsync(Context.current().wrapSupplier(operation), virtualThreads);
+    }
+
+    @Timed(name = "users.getAll", absolute = true, description = "Time to copy out every user")
+    @WithSpan
     public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+        List<User> all = new ArrayList<>(store.size());
+        store.after(null).forEach(all::add);
+        return all;
+    }
+
+    /**
+     * Returns up to {@code limit} users with an id greater than {@code afterId}, in id order.
+     * Pass a null {@code afterId} to start from the first user.
+     */
+    @Timed(name = "users.getPage", absolute = true, description = "Time to read a page of users")
+    @WithSpan
+    public List<User> getUsers(Long afterId, int limit) {
+        Iterable<User> tail = store.after(afterId);
+        List<User> page = new ArrayList<>(Math.min(limit, 256));
+        for (User user : tail) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(user);
+        }
+        return page;
     }
 
+    /**
+     * A live, id-ordered view of every user for streaming the whole store without copying it.
+     * Iteration is weakly consistent: it never fails under concurrent writes and may or may
+     * not reflect changes made after it started.
+     */
+    public Iterable<User> allUsers() {
+        return store.after(null);
+    }
+
+    public int getUserCount() {
+        return store.size();
+    }
+
+    /** Estimated memory held by the store, excluding the username and email indexes. */
+    public long getEstimatedStoreBytes() {
+        return store.estimatedFootprintBytes();
+    }
+
+    /** Username and email lookups since start. */
+    public long getIndexLookups() {
+        return indexLookups.sum();
+    }
+
+    /** Username and email lookups since start that found an entry in the index. */
+    public long getIndexHits() {
+        return indexHits.sum();
+    }
+
+    /**
+     * Identifies the current state of the whole store: it changes whenever any user is
+     * created, updated or deleted, including across restarts.
+     */
+    public String getStoreVersion() {
+        return getEpoch() + "-" + storeVersion.sum();
+    }
+
+    /**
+     * Identifies this run of the service. Ids and versions start over when the store is not
+     * persisted, so anything derived from them that outlives a restart must include it.
+     */
+    public String getEpoch() {
+        return Long.toString(epoch, 36);
+    }
+
+    /**
+     * Registers a listener that is called with the id of each user after a change to it
+     * becomes visible, for example to drop derived data such as cached representations.
+     */
+    public void addChangeListener(LongConsumer listener) {
+        changeListeners.add(listener);
+    }
+
+    @Timed(name = "users.get", absolute = true, description = "Time to read one user by id")
+    @WithSpan
     public Optional<User> getUserById(Long id) {
-        return Optional.ofNullable(users.get(id));
+        return id == null ? Optional.empty() : Optional.ofNullable(store.get(id));
     }
 
+    @Timed(name = "users.create", absolute = true, description = "Time to create a user, including the wait for the log")
+    @WithSpan
     public User createUser(User user) {
-        Long id = idCounter.incrementAndGet();
-        user.setId(id);
-        users.put(id, user);
+        LogPosition logged = new LogPosition();
+        insert(user, store.nextId(), logged);
+        awaitDurable(logged);
         return user;
     }
 
+    @Timed(name = "users.update", absolute = true, description = "Time to update a user, including the wait for the log")
+    @WithSpan
     public Optional<User> updateUser(Long id, User updatedUser) {
-        if (users.containsKey(id)) {
-            updatedUser.setId(id);
-            users.put(id, updatedUser);
-            return Optional.of(updatedUser);
-        }
-        return Optional.empty();
+        return updateUser(id, updatedUser, (Set<Long>) null);
     }
 
+    /**
+     * Replaces the user if it exists and, when {@code expectedVersions} is not null, is still
+     * at one of those versions. The stored user gets the next version number.
+     *
+     * @throws VersionConflictException if the user is at another version
+     * @throws InvalidUserException if a field of {@code updatedUser} is too long to store
+     */
+    @Timed(name = "users.update", absolute = true, description = "Time to update a user, including the wait for the log")
+    @WithSpan
+    public Optional<User> updateUser(Long id, User updatedUser, Set<Long> expectedVersions) {
+        LogPosition logged = new LogPosition();
+        Optional<User> result = update(id, updatedUser, expectedVersions, logged);
+        awaitDurable(logged);
+        return result;
+    }
+
+    @Timed(name = "users.delete", absolute = true, description = "Time to delete a user, including the wait for the log")
+    @WithSpan
     public boolean deleteUser(Long id) {
-        return users.remove(id) != null;
+        return deleteUser(id, (Set<Long>) null);
+    }
+
+    /**
+     * Deletes the user if it exists and, when {@code expectedVersions} is not null, is still
+     * at one of those versions.
+     *
+     * @throws VersionConflictException if the user is at another version
+     */
+    @Timed(name = "users.delete", absolute = true, description = "Time to delete a user, including the wait for the log")
+    @WithSpan
+    public boolean deleteUser(Long id, Set<Long> expectedVersions) {
+        LogPosition logged = new LogPosition();
+        boolean removed = delete(id, expectedVersions, logged);
+        awaitDurable(logged);
+        return removed;
+    }
+
+    /**
+     * Applies a batch of create, update and delete operations in order. A failing operation
+     * does not stop the batch; its result carries the status and error the single-user call
+     * would have produced. With persistence enabled the batch waits for the log once, after
+     * the last operation.
+     */
+    @Timed(name = "users.bulk", absolute = true, description = "Time to apply a bulk request")
+    @WithSpan
+    public List<BulkItemResult> applyBulk(List<BulkOperation> operations) {
+        LogPosition logged = new LogPosition();
+        List<BulkItemResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            BulkOperation operation = operations.get(i);
+            if (operation != null && BulkOperation.CREATE.equals(operation.getOp())) {
+                results.add(bulkCreate(i, operation.getUser(), logged));
+            } else {
+                results.add(bulkApply(i, operation, logged));
+            }
+        }
+        awaitDurable(logged);
+        return results;
+    }
+
+    private BulkItemResult bulkCreate(int index, User user, LogPosition logged) {
+        if (user == null || user.getUsername() == null || user.getEmail() == null) {
+            return new BulkItemResult(index, BulkOperation.CREATE, 400, null, "Username and email are required");
+        }
+        long id = store.nextId();
+        try {
+            insert(user, id, logged);
+            return new BulkItemResult(index, BulkOperation.CREATE, 201, id, null);
+        } catch (DuplicateUserException e) {
+            return new BulkItemResult(index, BulkOperation.CREATE, 409, null, e.getMessage());
+        } catch (InvalidUserException e) {
+            return new BulkItemResult(index, BulkOperation.CREATE, 400, null, e.getMessage());
+        }
+    }
+
+    private BulkItemResult bulkApply(int index, BulkOperation operation, LogPosition logged) {
+        if (operation == null || operation.getOp() == null) {
+            return new BulkItemResult(index, null, 400, null, "Operation is required");
+        }
+        String op = operation.getOp();
+        Long id = operation.getId();
+        if (!BulkOperation.UPDATE.equals(op) && !BulkOperation.DELETE.equals(op)) {
+            return new BulkItemResult(index, op, 400, id, "Unknown operation '" + op + "'");
+        }
+        if (id == null) {
+            return new BulkItemResult(index, op, 400, null, "Id is required");
+        }
+        if (BulkOperation.DELETE.equals(op)) {
+            return delete(id, null, logged)
+                    ? new BulkItemResult(index, op, 204, id, null)
+                    : new BulkItemResult(index, op, 404, id, "User not found");
+        }
+        if (operation.getUser() == null) {
+            return new BulkItemResult(index, op, 400, id, "User is required");
+        }
+        try {
+            return update(id, operation.getUser(), null, logged).isPresent()
+                    ? new BulkItemResult(index, op, 200, id, null)
+                    : new BulkItemResult(index, op, 404, id, "User not found");
+        } catch (DuplicateUserException e) {
+            return new BulkItemResult(index, op, 409, id, e.getMessage());
+        } catch (InvalidUserException e) {
+            return new BulkItemResult(index, op, 400, id, e.getMessage());
+        }
     }
 
+    // Every mutation is a store compute for its id. The log record is appended from the
+    // onApplied callback: other writers of the id are still excluded, so log order matches
+    // apply order per user, and the change is already visible to iteration, so a snapshot
+    // taken after a log roll sees every record written before the roll. Appends never wait
+    // for room in the log; each mutation waits for it in awaitLogCapacity before the compute.
+
+    private void insert(User user, Long id, LogPosition logged) {
+        checkFields(user);
+        reserveKeys(user, id);
+        user.setId(id);
+        user.setVersion(1);
+        try {
+            awaitLogCapacity();
+            store.compute(id, existing -> user, (existing, inserted) -> {
+                log(logged, () -> persistence.logUpsert(inserted));
+                searchIndex.add(inserted);
+            });
+        } catch (RuntimeException e) {
+            releaseKeys(user, id);
+            throw e;
+        }
+        changed(id);
+    }
+
+    private Optional<User> update(Long id, User updatedUser, Set<Long> expectedVersions, LogPosition logged) {
+        checkFields(updatedUser);
+        awaitLogCapacity();
+        User[] reservedOver = new User[1];
+        User result;
+        try {
+            result = store.compute(id, existing -> {
+                if (existing == null) {
+                    return null;
+                }
+                checkVersion(existing, expectedVersions);
+                reserveChangedKeys(existing, updatedUser, id);
+                reservedOver[0] = existing;
+                updatedUser.setId(id);
+                updatedUser.setVersion(existing.getVersion() + 1);
+                return updatedUser;
+            }, (existing, updated) -> {
+                if (updated == null) {
+                    return;
+                }
+                log(logged, () -> persistence.logUpsert(updated));
+                releaseReplacedKeys(existing, updated, id);
+                searchIndex.replace(existing, updated);
+            });
+        } catch (RuntimeException e) {
+            // Whether the store failed to keep the user or the log failed, nothing was
+            // applied, so the keys reserved for it go back
+            if (reservedOver[0] != null) {
+                releaseReplacedKeys(updatedUser, reservedOver[0], id);
+            }
+            throw e;
+        }
+        if (result != null) {
+            changed(id);
+        }
+        return Optional.ofNullable(result);
+    }
+
+    private boolean delete(Long id, Set<Long> expectedVersions, LogPosition logged) {
+        boolean[] removed = new boolean[1];
+        awaitLogCapacity();
+        store.compute(id, existing -> {
+            if (existing != null) {
+                checkVersion(existing, expectedVersions);
+            }
+            return null;
+        }, (existing, none) -> {
+            if (existing == null) {
+                return;
+            }
+            log(logged, () -> persistence.logDelete(id));
+            releaseKeys(existing, id);
+            searchIndex.remove(existing);
+            removed[0] = true;
+        });
+        if (removed[0]) {
+            changed(id);
+        }
+        return removed[0];
+    }
+
+    private void changed(long id) {
+        storeVersion.increment();
+        for (LongConsumer listener : changeListeners) {
+            listener.accept(id);
+        }
+    }
+
+    private static void checkFields(User user) {
+        try {
+            UserCodec.checkFields(user);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidUserException(e.getMessage());
+        }
+    }
+
+    private static void checkVersion(User existing, Set<Long> expectedVersions) {
+        if (expectedVersions != null && !expectedVersions.contains(existing.getVersion())) {
+            throw new VersionConflictException(existing.getId(), expectedVersions, existing.getVersion());
+        }
+    }
+
+    @Timed(name = "users.findByUsername", absolute = true, description = "Time to look up a user by username")
+    @WithSpan
     public Optional<User> findByUsername(String username) {
-        return users.values().stream()
-                .filter(user -> user.getUsername().equals(username))
-                .findFirst();
+        return lookup(usernameIndex, username)
+                .filter(user -> username.equals(user.getUsername()));
+    }
+
+    @Timed(name = "users.findByEmail", absolute = true, description = "Time to look up a user by email")
+    @WithSpan
+    public Optional<User> findByEmail(String email) {
+        String key = normalizeEmail(email);
+        return lookup(emailIndex, key)
+                .filter(user -> key.equals(emailKey(user)));
+    }
+
+    /**
+     * Users whose username, email or full name starts with {@code query}, ignoring case,
+     * best matches first; see {@link UserSearchIndex} for the ranking and typo tolerance.
+     */
+    @Timed(name = "users.search", absolute = true, description = "Time to search users by prefix")
+    @WithSpan
+    public List<User> search(String query, int limit) {
+        List<User> users = new ArrayList<>(Math.min(limit, 256));
+        for (long id : searchIndex.search(query, limit)) {
+            // A user deleted since the index was read is simply left out
+            User user = store.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /** Puts a recovered user into the store and indexes without logging it. */
+    private void restore(User user) {
+        Long id = user.getId();
+        store.compute(id, existing -> user, (previous, restored) -> {
+            if (previous != null) {
+                releaseKeys(previous, id);
+                searchIndex.remove(previous);
+            }
+            if (usernameKey(restored) != null) {
+                usernameIndex.put(usernameKey(restored), id);
+            }
+            if (emailKey(restored) != null) {
+                emailIndex.put(emailKey(restored), id);
+            }
+            searchIndex.add(restored);
+        });
+        store.advanceIds(id);
+    }
+
+    /** Removes a user deleted in the recovered log without logging it. */
+    private void forget(long id) {
+        store.compute(id, existing -> null, (previous, none) -> {
+            if (previous != null) {
+                releaseKeys(previous, id);
+                searchIndex.remove(previous);
+            }
+        });
+    }
+
+    private void clear() {
+        store.clear();
+        usernameIndex.clear();
+        emailIndex.clear();
+        searchIndex.clear();
+    }
+
+    private void awaitLogCapacity() {
+        if (persistence != null) {
+            persistence.awaitCapacity();
+        }
+    }
+
+    private void log(LogPosition logged, LongSupplier append) {
+        if (persistence != null) {
+            logged.advance(append.getAsLong());
+        }
+    }
+
+    private void awaitDurable(LogPosition logged) {
+        if (logged.sequence > 0) {
+            persistence.awaitDurable(logged.sequence);
+        }
+    }
+
+    /** The last log record a call appended, to wait on once the entry locks are released. */
+    private static final class LogPosition {
+        private long sequence;
+
+        void advance(long appended) {
+            sequence = Math.max(sequence, appended);
+        }
+    }
+
+    private Optional<User> lookup(ConcurrentMap<String, Long> index, String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        indexLookups.increment();
+        Long id = index.get(key);
+        if (id == null) {
+            return Optional.empty();
+        }
+        indexHits.increment();
+        return Optional.ofNullable(store.get(id));
+    }
+
+    private void reserveKeys(User user, Long id) {
+        String username = usernameKey(user);
+        String email = emailKey(user);
+        reserve(usernameIndex, "username", username, id);
+        try {
+            reserve(emailIndex, "email", email, id);
+        } catch (DuplicateUserException e) {
+            release(usernameIndex, username, id);
+            throw e;
+        }
+    }
+
+    private void releaseKeys(User user, Long id) {
+        release(usernameIndex, usernameKey(user), id);
+        release(emailIndex, emailKey(user), id);
+    }
+
+    /** Reserves the keys of {@code updated} that {@code existing} does not already hold. */
+    private void reserveChangedKeys(User existing, User updated, Long id) {
+        String newUsername = usernameKey(updated);
+        boolean usernameChanged = !Objects.equals(usernameKey(existing), newUsername);
+        if (usernameChanged) {
+            reserve(usernameIndex, "username", newUsername, id);
+        }
+        String newEmail = emailKey(updated);
+        if (!Objects.equals(emailKey(existing), newEmail)) {
+            try {
+                reserve(emailIndex, "email", newEmail, id);
+            } catch (DuplicateUserException e) {
+                if (usernameChanged) {
+                    release(usernameIndex, newUsername, id);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /** Releases the keys of {@code replaced} that {@code current} no longer uses. */
+    private void releaseReplacedKeys(User replaced, User current, Long id) {
+        String oldUsername = usernameKey(replaced);
+        if (!Objects.equals(oldUsername, usernameKey(current))) {
+            release(usernameIndex, oldUsername, id);
+        }
+        String oldEmail = emailKey(replaced);
+        if (!Objects.equals(oldEmail, emailKey(current))) {
+            release(emailIndex, oldEmail, id);
+        }
+    }
+
+    private static void reserve(ConcurrentMap<String, Long> index, String field, String key, Long id) {
+        if (key == null) {
+            return;
+        }
+        Long owner = index.putIfAbsent(key, id);
+        if (owner != null && !owner.equals(id)) {
+            throw new DuplicateUserException(field, key);
+        }
+    }
+
+    private static void release(ConcurrentMap<String, Long> index, String key, Long id) {
+        if (key != null) {
+            index.remove(key, id);
+        }
+    }
+
+    private static String usernameKey(User user) {
+        return user.getUsername();
+    }
+
+    private static String emailKey(User user) {
+        return normalizeEmail(user.getEmail());
+    }
+
+    private static String normalizeEmail(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
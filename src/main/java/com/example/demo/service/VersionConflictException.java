@@ -0,0 +1,23 @@
+package com.example.demo.service;
+
+import java.util.Set;
+
+/**
+ * Thrown when a conditional update or delete expected other versions of the user than
+ * the one currently stored.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long currentVersion;
+
+    public VersionConflictException(long id, Set<Long> expectedVersions, long currentVersion) {
+        super("User " + id + " is at version " + currentVersion + ", not one of " + expectedVersions);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.store;
+
+import com.example.demo.model.User;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * The default store: {@link User} objects on the heap in a ConcurrentHashMap for O(1) id
+ * lookups, mirrored in a ConcurrentSkipListMap for id-ordered iteration.
+ */
+public class HeapUserStore implements UserStore {
+
+    // Rough per-user cost on a 64-bit JVM with compressed oops: the User, its boxed id,
+    // LocalDateTime (with LocalDate and LocalTime), three short Strings with their byte
+    // arrays, one hash map node and table slot, and one skip list node plus index share.
+    static final long ESTIMATED_BYTES_PER_USER = 24 + 16 + 24 + 24 + 24 + 3 * (24 + 32) + 40 + 48;
+
+    private final ConcurrentHashMap<Long, User> users = new ConcurrentHashMap<>();
+
+    // Only written while holding the users entry lock of the same id, so both maps agree
+    private final ConcurrentNavigableMap<Long, User> usersById = new ConcurrentSkipListMap<>();
+
+    @Override
+    public User get(long id) {
+        return users.get(id);
+    }
+
+    @Override
+    public User compute(long id, UnaryOperator<User> remapping, BiConsumer<User, User> onApplied) {
+        return users.compute(id, (key, current) -> {
+            User next = remapping.apply(current);
+            mirror(id, next);
+            try {
+                onApplied.accept(current, next);
+            } catch (RuntimeException e) {
+                mirror(id, current);
+                throw e;
+            }
+            return next;
+        });
+    }
+
+    private void mirror(long id, User user) {
+        if (user == null) {
+            usersById.remove(id);
+        } else {
+            usersById.put(id, user);
+        }
+    }
+
+    @Override
+    public Iterable<User> after(Long afterId) {
+        return Collections.unmodifiableCollection(afterId == null
+                ? usersById.values()
+                : usersById.tailMap(afterId, false).values());
+    }
+
+    @Override
+    public int size() {
+        return users.size();
+    }
+
+    @Override
+    public void clear() {
+        users.clear();
+        usersById.clear();
+    }
+
+    @Override
+    public long estimatedFootprintBytes() {
+        return users.size() * ESTIMATED_BYTES_PER_USER;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.store;
+
+/**
+ * How ids are divided between the shards of a {@link ShardedUserStore}: ids are grouped in
+ * blocks of {@link #BLOCK_SIZE} consecutive values, block {@code k} holding ids
+ * {@code k * BLOCK_SIZE + 1} to {@code (k + 1) * BLOCK_SIZE}, and block {@code k} belongs
+ * to shard {@code k % shards}.
+ */
+public final class IdBlocks {
+
+    public static final int BLOCK_SIZE = 64;
+
+    /** A single shard owning every id. */
+    public static final IdBlocks SINGLE = new IdBlocks(1);
+
+    private final int shards;
+
+    public IdBlocks(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("At least one shard is required, got " + shards);
+        }
+        this.shards = shards;
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    public int shardOf(long id) {
+        return (int) (block(id) % shards);
+    }
+
+    /** The smallest id of at least {@code id} (and at least 1) that belongs to {@code shard}. */
+    public long nextOwned(long id, int shard) {
+        long first = Math.max(1, id);
+        long block = block(first);
+        int behind = Math.floorMod(shard - (int) (block % shards), shards);
+        return behind == 0 ? first : (block + behind) * BLOCK_SIZE + 1;
+    }
+
+    /** The id after {@code id} in the same shard, skipping the blocks of the other shards. */
+    long successor(long id) {
+        return id % BLOCK_SIZE == 0 ? id + 1 + (long) (shards - 1) * BLOCK_SIZE : id + 1;
+    }
+
+    private static long block(long id) {
+        return (id - 1) / BLOCK_SIZE;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.demo.store;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from positive long keys to long values, stored in two primitive
+ * arrays (16 bytes per slot, no per-entry objects). Uses linear probing with backward-shift
+ * deletion, so there are no tombstones. Not thread-safe; {@link OffHeapUserStore} guards it.
+ */
+final class LongLongHashMap {
+
+    static final long MISSING = -1;
+
+    private static final long EMPTY = 0;
+    private static final double MAX_LOAD = 0.6;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int resizeAt;
+
+    LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the value for {@code key}, or {@link #MISSING}. Safe to call while a writer is
+     * modifying the map as long as the caller validates the result afterwards: it may then
+     * return a wrong value, but it always terminates.
+     */
+    long get(long key) {
+        long[] keys = this.keys;
+        long[] values = this.values;
+        if (values.length != keys.length) {
+            return MISSING;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        for (int probes = 0; probes < keys.length; probes++) {
+            long candidate = keys[slot];
+            if (candidate == key) {
+                return values[slot];
+            }
+            if (candidate == EMPTY) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /** Maps {@code key} to {@code value} and returns the previous value, or {@link #MISSING}. */
+    long put(long key, long value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Keys must be positive: " + key);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (true) {
+            long candidate = keys[slot];
+            if (candidate == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if (candidate == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size >= resizeAt) {
+                    resize(keys.length << 1);
+                }
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Removes {@code key} and returns its value, or {@link #MISSING}. */
+    long remove(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (true) {
+            long candidate = keys[slot];
+            if (candidate == EMPTY) {
+                return MISSING;
+            }
+            if (candidate == key) {
+                long previous = values[slot];
+                shiftBack(slot, mask);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // Moves later entries of the probe run into the freed slot so lookups never stop early
+    private void shiftBack(int freed, int mask) {
+        int slot = freed;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == EMPTY) {
+                keys[freed] = EMPTY;
+                return;
+            }
+            int home = slot(key, mask);
+            boolean movable = freed <= slot
+                    ? home <= freed || home > slot
+                    : home <= freed && home > slot;
+            if (movable) {
+                keys[freed] = key;
+                values[freed] = values[slot];
+                freed = slot;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        // Values first: a racing reader that sees the new keys array also sees a matching
+        // values array, or notices the length mismatch
+        values = new long[capacity];
+        keys = new long[capacity];
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,337 @@
+package com.example.demo.store;
+
+import com.example.demo.model.User;
+import com.example.demo.persistence.UserCodec;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps users outside the Java heap in {@link UserCodec} binary form, either in direct
+ * buffers or in a memory-mapped scratch file, and finds them through a primitive
+ * id-to-address {@link LongLongHashMap}. A {@link User} object only exists while a caller
+ * holds one, which removes nearly all per-user heap objects and the GC work they cause.
+ * <p>
+ * Records are appended to fixed-size chunks as {@code int length, encoded user}; an update
+ * appends a new record and leaves the old one as garbage, which is reclaimed by copying the
+ * live records into fresh chunks once garbage outweighs live data. Writers are serialized by
+ * a single lock, so one store trades write concurrency for footprint; a
+ * {@link ShardedUserStore} of several wins it back. Readers use optimistic reads and only
+ * fall back to the read lock when they race with a writer.
+ * <p>
+ * The mapped file is scratch space so the OS can page cold records out; it is recreated on
+ * every start. Durability comes from the write-ahead log, not from this file.
+ */
+public class OffHeapUserStore implements UserStore, Closeable {
+
+    static final int DEFAULT_CHUNK_BYTES = 64 * 1024 * 1024;
+
+    private static final int LENGTH_BYTES = Integer.BYTES;
+    private static final int ADDRESS_SHIFT = 32;
+    private static final long OFFSET_MASK = 0xFFFFFFFFL;
+    private static final int INITIAL_INDEX_SIZE = 1024;
+
+    private final StampedLock lock = new StampedLock();
+    private final Path mappedFile;
+    private final int chunkBytes;
+    private final IdBlocks blocks;
+    private final int shard;
+    private final LongLongHashMap index = new LongLongHashMap(INITIAL_INDEX_SIZE);
+
+    // Written under the write lock; chunks is copied on write so racing readers stay safe
+    private Arena arena;
+    private int generation;
+    private long liveBytes;
+    private long garbageBytes;
+    private volatile long maxId;
+
+    /** Chunks of one generation of the record space; compaction starts a new one. */
+    private final class Arena implements Closeable {
+        private final Path file;
+        private final FileChannel channel;
+        private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+        private int position;
+
+        Arena(Path file) throws IOException {
+            this.file = file;
+            this.channel = file == null ? null : FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        long append(byte[] record) {
+            int needed = LENGTH_BYTES + record.length;
+            ByteBuffer[] current = chunks;
+            if (current.length == 0 || position + needed > chunkBytes) {
+                current = addChunk(current);
+                position = 0;
+            }
+            int chunk = current.length - 1;
+            ByteBuffer buffer = current[chunk];
+            buffer.putInt(position, record.length);
+            buffer.put(position + LENGTH_BYTES, record);
+            long address = ((long) chunk << ADDRESS_SHIFT) | position;
+            position += needed;
+            return address;
+        }
+
+        private ByteBuffer[] addChunk(ByteBuffer[] current) {
+            ByteBuffer chunk;
+            try {
+                chunk = channel == null
+                        ? ByteBuffer.allocateDirect(chunkBytes)
+                        : channel.map(FileChannel.MapMode.READ_WRITE, (long) current.length * chunkBytes, chunkBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map user store chunk in " + file, e);
+            }
+            ByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = chunk;
+            chunks = grown;
+            return grown;
+        }
+
+        User read(long address) {
+            ByteBuffer chunk = chunks[(int) (address >>> ADDRESS_SHIFT)];
+            int offset = (int) (address & OFFSET_MASK);
+            int length = chunk.getInt(offset);
+            return UserCodec.decode(chunk.slice(offset + LENGTH_BYTES, length));
+        }
+
+        int recordBytes(long address) {
+            ByteBuffer chunk = chunks[(int) (address >>> ADDRESS_SHIFT)];
+            return LENGTH_BYTES + chunk.getInt((int) (address & OFFSET_MASK));
+        }
+
+        long reservedBytes() {
+            return (long) chunks.length * chunkBytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /** A store in direct (off-heap) buffers. */
+    public OffHeapUserStore() throws IOException {
+        this(null, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * A store in chunks of {@code chunkBytes}, mapped from {@code mappedFile} when it is not
+     * null and allocated as direct buffers otherwise.
+     */
+    public OffHeapUserStore(Path mappedFile, int chunkBytes) throws IOException {
+        this(mappedFile, chunkBytes, IdBlocks.SINGLE, 0);
+    }
+
+    /** A store holding only the ids {@code blocks} gives to {@code shard}, as one shard of several. */
+    public OffHeapUserStore(Path mappedFile, int chunkBytes, IdBlocks blocks, int shard) throws IOException {
+        this.mappedFile = mappedFile;
+        this.chunkBytes = chunkBytes;
+        this.blocks = blocks;
+        this.shard = shard;
+        this.arena = new Arena(generationFile(0));
+    }
+
+    @Override
+    public User get(long id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                long address = index.get(id);
+                User user = address == LongLongHashMap.MISSING ? null : arena.read(address);
+                if (lock.validate(stamp)) {
+                    return user;
+                }
+            } catch (RuntimeException e) {
+                // Raced with a writer; retry under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            long address = index.get(id);
+            return address == LongLongHashMap.MISSING ? null : arena.read(address);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public User compute(long id, UnaryOperator<User> remapping, BiConsumer<User, User> onApplied) {
+        long stamp = lock.writeLock();
+        try {
+            long previousAddress = index.get(id);
+            User current = previousAddress == LongLongHashMap.MISSING ? null : arena.read(previousAddress);
+            User next = remapping.apply(current);
+            if (next == null && current == null) {
+                onApplied.accept(null, null);
+                return null;
+            }
+
+            long nextAddress = LongLongHashMap.MISSING;
+            if (next == null) {
+                index.remove(id);
+            } else {
+                nextAddress = arena.append(UserCodec.encode(next));
+                index.put(id, nextAddress);
+            }
+            try {
+                onApplied.accept(current, next);
+            } catch (RuntimeException e) {
+                if (previousAddress == LongLongHashMap.MISSING) {
+                    index.remove(id);
+                } else {
+                    index.put(id, previousAddress);
+                }
+                if (nextAddress != LongLongHashMap.MISSING) {
+                    garbageBytes += arena.recordBytes(nextAddress);
+                }
+                throw e;
+            }
+
+            if (previousAddress != LongLongHashMap.MISSING) {
+                int bytes = arena.recordBytes(previousAddress);
+                liveBytes -= bytes;
+                garbageBytes += bytes;
+            }
+            if (nextAddress != LongLongHashMap.MISSING) {
+                liveBytes += arena.recordBytes(nextAddress);
+                if (id > maxId) {
+                    maxId = id;
+                }
+            }
+            if (garbageBytes > chunkBytes && garbageBytes > liveBytes) {
+                compact();
+            }
+            return next;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Copies the live records into a fresh arena. Called with the write lock held. */
+    private void compact() {
+        Arena previous = arena;
+        Arena compacted;
+        try {
+            compacted = new Arena(generationFile(generation + 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open compacted user store", e);
+        }
+        LongLongHashMap moved = new LongLongHashMap(index.size());
+        index.forEach((id, address) -> {
+            ByteBuffer chunk = previous.chunks[(int) (address >>> ADDRESS_SHIFT)];
+            int offset = (int) (address & OFFSET_MASK);
+            byte[] record = new byte[chunk.getInt(offset)];
+            chunk.get(offset + LENGTH_BYTES, record);
+            moved.put(id, compacted.append(record));
+        });
+        moved.forEach(index::put);
+        arena = compacted;
+        generation++;
+        garbageBytes = 0;
+        try {
+            previous.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to release compacted user store", e);
+        }
+    }
+
+    @Override
+    public Iterable<User> after(Long afterId) {
+        // Ids are handed out in increasing order within each block, so walking this shard's
+        // blocks and skipping the gaps left by deletes yields users in id order without a
+        // sorted index
+        long first = blocks.nextOwned(afterId == null ? 1 : afterId + 1, shard);
+        return () -> new Iterator<>() {
+            private long nextId = first;
+            private User next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && nextId <= maxId) {
+                    next = get(nextId);
+                    nextId = blocks.successor(nextId);
+                }
+                return next != null;
+            }
+
+            @Override
+            public User next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                User user = next;
+                next = null;
+                return user;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            index.clear();
+            Arena previous = arena;
+            arena = new Arena(generationFile(++generation));
+            previous.close();
+            liveBytes = 0;
+            garbageBytes = 0;
+            maxId = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to reset user store", e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long estimatedFootprintBytes() {
+        long stamp = lock.readLock();
+        try {
+            // Two long arrays per index slot, plus the reserved chunks (off-heap)
+            return (long) index.capacity() * 2 * Long.BYTES + arena.reservedBytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            arena.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private Path generationFile(int generation) {
+        return mappedFile == null ? null : mappedFile.resolveSibling(mappedFile.getFileName() + "." + generation);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.demo.store;
+
+import com.example.demo.model.User;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Spreads users over several stores by id and hands out the ids, so concurrent writers
+ * rarely touch the same shard or the same counter. Each shard owns blocks of ids (see
+ * {@link IdBlocks}) and has its own cursor, the next id to hand out; a thread always takes
+ * ids from the shard its thread id hashes to, so a thread's new users land in one shard.
+ * Taking an id is a single compare-and-set on that cursor, which moves on to the shard's
+ * next block when a block runs out; there is no shared counter.
+ * <p>
+ * Ids increase within a thread's shard but not across shards, and a shard that is never
+ * written leaves its blocks unused, so ids are unique but not dense.
+ */
+public class ShardedUserStore implements UserStore, Closeable {
+
+    // Cursors sit 128 bytes apart so threads on different shards do not share a cache line
+    private static final int PADDING = 16;
+
+    /** Creates the store for one shard, which will only be given ids that {@code blocks} assigns it. */
+    @FunctionalInterface
+    public interface ShardFactory {
+        UserStore create(int shard, IdBlocks blocks);
+    }
+
+    private final IdBlocks blocks;
+    private final UserStore[] shards;
+    private final AtomicLongArray cursors;
+
+    // Highest id passed to advanceIds; those ids may not have come from any cursor
+    private final AtomicLong advancedTo = new AtomicLong();
+
+    public ShardedUserStore(int shardCount, ShardFactory factory) {
+        this.blocks = new IdBlocks(shardCount);
+        this.shards = new UserStore[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards[shard] = factory.create(shard, blocks);
+        }
+        this.cursors = new AtomicLongArray(shardCount * PADDING);
+        resetIds();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /** A new id, never handed out before, from the calling thread's shard. */
+    public long nextId() {
+        int index = cursorIndex(threadShard());
+        while (true) {
+            long id = cursors.get(index);
+            if (cursors.compareAndSet(index, id, blocks.successor(id))) {
+                return id;
+            }
+        }
+    }
+
+    /** Makes sure no id up to {@code id} is handed out, e.g. after recovering it from the log. */
+    public void advanceIds(long id) {
+        for (int shard = 0; shard < shards.length; shard++) {
+            cursors.accumulateAndGet(cursorIndex(shard), blocks.nextOwned(id + 1, shard), Math::max);
+        }
+        advancedTo.accumulateAndGet(id, Math::max);
+    }
+
+    /** An id at least as high as any handed out or advanced past; 0 if there is none. */
+    public long getIdHighWater() {
+        long highWater = advancedTo.get();
+        for (int shard = 0; shard < shards.length; shard++) {
+            long cursor = cursors.get(cursorIndex(shard));
+            // At the start of a block the last id handed out is the end of the shard's previous block
+            long last = (cursor - 1) % IdBlocks.BLOCK_SIZE != 0
+                    ? cursor - 1
+                    : cursor - 1 - (long) (shards.length - 1) * IdBlocks.BLOCK_SIZE;
+            highWater = Math.max(highWater, last);
+        }
+        return highWater;
+    }
+
+    private void resetIds() {
+        for (int shard = 0; shard < shards.length; shard++) {
+            cursors.set(cursorIndex(shard), blocks.nextOwned(1, shard));
+        }
+        advancedTo.set(0);
+    }
+
+    private int threadShard() {
+        // Fibonacci hashing spreads sequential thread ids evenly over the shards
+        long hash = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 32) % shards.length);
+    }
+
+    private static int cursorIndex(int shard) {
+        return shard * PADDING;
+    }
+
+    @Override
+    public User get(long id) {
+        return shards[blocks.shardOf(id)].get(id);
+    }
+
+    @Override
+    public User compute(long id, UnaryOperator<User> remapping, BiConsumer<User, User> onApplied) {
+        return shards[blocks.shardOf(id)].compute(id, remapping, onApplied);
+    }
+
+    @Override
+    public Iterable<User> after(Long afterId) {
+        if (shards.length == 1) {
+            return shards[0].after(afterId);
+        }
+        return () -> new MergingIterator(afterId);
+    }
+
+    /** Merges the shards' id-ordered iterators into one, always taking the lowest id next. */
+    private final class MergingIterator implements Iterator<User> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>();
+
+        MergingIterator(Long afterId) {
+            for (UserStore shard : shards) {
+                Iterator<User> users = shard.after(afterId).iterator();
+                if (users.hasNext()) {
+                    heads.add(new Head(users.next(), users));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public User next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.rest.hasNext()) {
+                heads.add(new Head(head.rest.next(), head.rest));
+            }
+            return head.user;
+        }
+    }
+
+    private record Head(User user, Iterator<User> rest) implements Comparable<Head> {
+        @Override
+        public int compareTo(Head other) {
+            return Long.compare(user.getId(), other.user.getId());
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (UserStore shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (UserStore shard : shards) {
+            shard.clear();
+        }
+        resetIds();
+    }
+
+    @Override
+    public long estimatedFootprintBytes() {
+        long bytes = 0;
+        for (UserStore shard : shards) {
+            bytes += shard.estimatedFootprintBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (UserStore shard : shards) {
+            if (shard instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.store;
+
+import com.example.demo.model.User;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Primary storage of users by id. Implementations differ in how records are laid out in
+ * memory; ordering, indexing and persistence are handled by the caller.
+ */
+public interface UserStore {
+
+    /** Returns the user with the given id, or null. */
+    User get(long id);
+
+    /**
+     * Atomically replaces the user with the given id. {@code remapping} receives the
+     * current user (null if absent) and returns the new one (null to remove it).
+     * {@code onApplied} then runs with the previous and the new user while writers of the
+     * same id are still excluded and the change is already visible to iteration; if it
+     * throws, the change is rolled back and the exception propagates. If {@code remapping}
+     * throws, nothing changes and {@code onApplied} is not called.
+     *
+     * @return the new user, or null if there is none
+     */
+    User compute(long id, UnaryOperator<User> remapping, BiConsumer<User, User> onApplied);
+
+    /**
+     * Users with an id greater than {@code afterId} (all users when null), in id order.
+     * Iteration is weakly consistent and never fails under concurrent writes.
+     */
+    Iterable<User> after(Long afterId);
+
+    int size();
+
+    void clear();
+
+    /** A rough estimate of the memory held by the stored users and the id lookup structure. */
+    long estimatedFootprintBytes();
+}
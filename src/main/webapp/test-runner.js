@@ -1,7 +1,8 @@
 const API_BASE = '/openliberty-demo/api';
 
 let currentExecutionId = null;
-let pollingInterval = null;
+let eventSource = null;
+let liveExecution = null;
 let availableTests = {};
 
 // Initialize the test runner when page loads
@@ -58,7 +59,7 @@ function updateTestMethods() {
 
 // Run all tests
 async function runAllTests() {
-    if (currentExecutionId && pollingInterval) {
+    if (currentExecutionId && eventSource) {
         showMessage('Tests are already running', 'warning');
         return;
     }
@@ -79,12 +80,14 @@ async function runAllTests() {
             currentExecutionId = data.executionId;
 
             showMessage('Test execution started successfully', 'success');
-            startPolling();
+            startStreaming();
 
             // Disable run buttons
             document.getElementById('runAllBtn').disabled = true;
             document.getElementById('runSpecificBtn').disabled = true;
 
+        } else if (response.status === 429) {
+            showBusy(response);
         } else {
             throw new Error('Failed to start test execution');
         }
@@ -97,7 +100,7 @@ async function runAllTests() {
 
 // Run specific test
 async function runSpecificTest() {
-    if (currentExecutionId && pollingInterval) {
+    if (currentExecutionId && eventSource) {
         showMessage('Tests are already running', 'warning');
         return;
     }
@@ -126,12 +129,14 @@ async function runSpecificTest() {
             currentExecutionId = data.executionId;
 
             showMessage(`Test execution started: ${testClass}.${testMethod}`, 'success');
-            startPolling();
+            startStreaming();
 
             // Disable run buttons
             document.getElementById('runAllBtn').disabled = true;
             document.getElementById('runSpecificBtn').disabled = true;
 
+        } else if (response.status === 429) {
+            showBusy(response);
         } else {
             throw new Error('Failed to start test execution');
         }
@@ -142,21 +147,69 @@ async function runSpecificTest() {
     }
 }
 
-// Start polling for test results
-function startPolling() {
-    if (pollingInterval) {
-        clearInterval(pollingInterval);
-    }
+// The server queue is full; tell the user when to try again
+function showBusy(response) {
+    const retryAfter = response.headers.get('Retry-After') || 'a few';
+    showMessage(`Test runner is busy, please retry in ${retryAfter} seconds`, 'warning');
+    updateStatus('idle', 'Test runner busy');
+}
+
+// Follow the execution through its server-sent event stream: the current state arrives
+// first, then only new results, appended output and status changes
+function startStreaming() {
+    closeEventSource();
 
     // Show progress bar
     document.getElementById('progressBar').style.display = 'block';
 
-    pollingInterval = setInterval(async () => {
-        await checkTestStatus();
-    }, 1000); // Poll every second
+    const source = new EventSource(`${API_BASE}/tests/execution/${currentExecutionId}/events`);
+    eventSource = source;
+
+    // Every (re)connect replays the state from the start
+    source.addEventListener('open', () => {
+        liveExecution = { status: 'QUEUED', results: [], output: '' };
+    });
+
+    source.addEventListener('result', event => {
+        liveExecution.results.push(JSON.parse(event.data));
+        updateTestResults(liveExecution.results);
+        updateTestSummary(liveExecution.results);
+    });
+
+    source.addEventListener('output', event => {
+        liveExecution.output += JSON.parse(event.data).text;
+        updateTestOutput(liveExecution.output);
+    });
+
+    source.addEventListener('status', event => {
+        liveExecution.status = JSON.parse(event.data).status;
+        updateStatus(liveExecution.status.toLowerCase(), getStatusMessage(liveExecution));
+        if (liveExecution.status === 'COMPLETED' || liveExecution.status === 'FAILED') {
+            executionFinished(liveExecution.status);
+        }
+    });
+
+    source.addEventListener('error', () => {
+        // The browser reconnects on its own unless the server refused the stream
+        if (source.readyState === EventSource.CLOSED && eventSource === source) {
+            checkTestStatus();
+        }
+    });
+}
+
+function executionFinished(status) {
+    stopPolling();
+    enableRunButtons();
+    loadRecentExecutions();
+
+    if (status === 'COMPLETED') {
+        showMessage('Test execution completed successfully', 'success');
+    } else {
+        showMessage('Test execution failed', 'error');
+    }
 }
 
-// Check test execution status
+// Fetch the whole execution once
 async function checkTestStatus() {
     if (!currentExecutionId) return;
 
@@ -168,15 +221,7 @@ async function checkTestStatus() {
             updateTestDisplay(execution);
 
             if (execution.status === 'COMPLETED' || execution.status === 'FAILED') {
-                stopPolling();
-                enableRunButtons();
-                loadRecentExecutions();
-
-                if (execution.status === 'COMPLETED') {
-                    showMessage('Test execution completed successfully', 'success');
-                } else {
-                    showMessage('Test execution failed', 'error');
-                }
+                executionFinished(execution.status);
             }
         }
     } catch (error) {
@@ -195,6 +240,8 @@ function updateTestDisplay(execution) {
 // Get status message based on execution state
 function getStatusMessage(execution) {
     switch (execution.status) {
+        case 'QUEUED':
+            return 'Waiting for a free test runner...';
         case 'RUNNING':
             return 'Running tests...';
         case 'COMPLETED':
@@ -218,6 +265,9 @@ function updateStatus(status, message) {
 
     // Add appropriate class
     switch (status) {
+        case 'queued':
+            indicator.classList.add('status-queued');
+            break;
         case 'running':
             indicator.classList.add('status-running');
             break;
@@ -353,12 +403,16 @@ async function loadExecution(executionId) {
     }
 }
 
-// Stop polling
-function stopPolling() {
-    if (pollingInterval) {
-        clearInterval(pollingInterval);
-        pollingInterval = null;
+function closeEventSource() {
+    if (eventSource) {
+        eventSource.close();
+        eventSource = null;
     }
+}
+
+// Stop following the current execution
+function stopPolling() {
+    closeEventSource();
 
     // Hide progress bar
     document.getElementById('progressBar').style.display = 'none';
@@ -0,0 +1,96 @@
+package com.example.demo;
+
+import com.example.demo.config.CORSFilter;
+import com.example.demo.config.CORSPolicy;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CORSPolicyTest {
+
+    @Test
+    public void testAllowsOnlyListedOriginsIgnoringCase() {
+        CORSPolicy policy = new CORSPolicy(" https://app.example.com, http://localhost:3000 ,",
+                "GET", "Content-Type", "", false, 600);
+
+        assertTrue(policy.allows("https://APP.example.com"));
+        assertTrue(policy.allows("http://localhost:3000"));
+        assertFalse(policy.allows("https://evil.example.com"));
+        assertFalse(policy.allows(null));
+        assertEquals("https://app.example.com", policy.allowOrigin("https://app.example.com"));
+        assertNull(policy.allowOrigin("https://evil.example.com"));
+        assertNull(policy.allowOrigin(null));
+        assertTrue(policy.variesByOrigin());
+    }
+
+    @Test
+    public void testPrecomputesPreflightAndResponseHeaders() {
+        CORSPolicy policy = new CORSPolicy("https://app.example.com", "GET,POST , PUT", "Content-Type,If-Match",
+                "ETag, Link", true, 86400);
+
+        assertEquals(Map.of(
+                "Access-Control-Allow-Credentials", "true",
+                "Access-Control-Allow-Methods", "GET, POST, PUT",
+                "Access-Control-Allow-Headers", "Content-Type, If-Match",
+                "Access-Control-Max-Age", "86400"), policy.getPreflightHeaders());
+        assertEquals(Map.of(
+                "Access-Control-Allow-Credentials", "true",
+                "Access-Control-Expose-Headers", "ETag, Link"), policy.getResponseHeaders());
+        assertThrows(UnsupportedOperationException.class, () -> policy.getResponseHeaders().put("X", "y"));
+    }
+
+    @Test
+    public void testWildcardAnswersAnyOriginWithoutCredentials() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CORSPolicy("https://app.example.com, *", "GET", "", "", true, 60));
+
+        CORSPolicy anonymous = new CORSPolicy("*", "GET", "", "", false, 60);
+        assertTrue(anonymous.allows("https://any.example.com"));
+        assertEquals("*", anonymous.allowOrigin("https://any.example.com"));
+        assertNull(anonymous.allowOrigin(null));
+        assertFalse(anonymous.variesByOrigin());
+        assertFalse(anonymous.getResponseHeaders().containsKey("Access-Control-Allow-Credentials"));
+        assertFalse(anonymous.getResponseHeaders().containsKey("Access-Control-Expose-Headers"));
+    }
+
+    @Test
+    public void testLeavesRequestsWithoutOriginAlone() {
+        CORSFilter filter = new CORSFilter(new CORSPolicy("*", "GET", "", "ETag", false, 60));
+
+        MultivaluedMap<String, Object> headers = respond(filter, null);
+        assertEquals(Map.of(HttpHeaders.VARY, List.of("Origin")), headers);
+
+        headers = respond(filter, "https://any.example.com");
+        assertEquals(List.of("*"), headers.get("Access-Control-Allow-Origin"));
+        assertEquals(List.of("ETag"), headers.get("Access-Control-Expose-Headers"));
+        assertEquals(List.of("Origin"), headers.get(HttpHeaders.VARY));
+    }
+
+    /** Runs the response filter for a GET with the given Origin header and returns the response headers. */
+    private static MultivaluedMap<String, Object> respond(CORSFilter filter, String origin) {
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        ContainerRequestContext request = proxy(ContainerRequestContext.class, (method, args) -> switch (method) {
+            case "getHeaderString" -> "Origin".equalsIgnoreCase((String) args[0]) ? origin : null;
+            case "getMethod" -> "GET";
+            default -> null;
+        });
+        ContainerResponseContext response = proxy(ContainerResponseContext.class,
+                (method, args) -> method.equals("getHeaders") ? headers : null);
+        filter.filter(request, response);
+        return headers;
+    }
+
+    private static <T> T proxy(Class<T> type, BiFunction<String, Object[], Object> answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (instance, method, args) -> answer.apply(method.getName(), args)));
+    }
+}
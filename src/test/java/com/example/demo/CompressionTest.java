@@ -0,0 +1,119 @@
+package com.example.demo;
+
+import com.example.demo.config.CompressingOutputStream;
+import com.example.demo.config.CompressingOutputStream.Encoding;
+import com.example.demo.config.CompressionInterceptor;
+import com.example.demo.config.DeflaterPool;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionTest {
+
+    private static final byte[] BODY = "{\"id\":1,\"username\":\"user1\",\"email\":\"user1@example.com\"},"
+            .repeat(100).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testNegotiatesEncodingFromAcceptEncoding() {
+        assertEquals(Encoding.GZIP, CompressionInterceptor.negotiate("gzip, deflate, br"));
+        assertEquals(Encoding.DEFLATE, CompressionInterceptor.negotiate("deflate"));
+        assertEquals(Encoding.DEFLATE, CompressionInterceptor.negotiate("gzip;q=0.5, deflate;q=0.8"));
+        assertEquals(Encoding.GZIP, CompressionInterceptor.negotiate("*"));
+        assertEquals(Encoding.DEFLATE, CompressionInterceptor.negotiate("gzip;q=0, *"));
+        assertNull(CompressionInterceptor.negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(CompressionInterceptor.negotiate("br, identity"));
+        assertNull(CompressionInterceptor.negotiate(null));
+    }
+
+    @Test
+    public void testSuffixesETagOfCompressedBody() {
+        assertEquals("\"a1-7-3-gzip\"", CompressionInterceptor.encodedTag("\"a1-7-3\"", Encoding.GZIP));
+        assertEquals("W/\"a1-7-3-gzip\"", CompressionInterceptor.encodedTag("W/\"a1-7-3\"", Encoding.GZIP));
+        assertEquals("\"a1-7-3-deflate\"", CompressionInterceptor.encodedTag("\"a1-7-3\"", Encoding.DEFLATE));
+
+        // Tags sent back in If-Match and If-None-Match are compared without the suffix
+        assertEquals("\"a1-7-3\"", CompressionInterceptor.identityTag("\"a1-7-3-gzip\""));
+        assertEquals("\"a1-7-3\"", CompressionInterceptor.identityTag("\"a1-7-3-deflate\""));
+        assertEquals("\"a1-7-3\"", CompressionInterceptor.identityTag("\"a1-7-3\""));
+        assertEquals("*", CompressionInterceptor.identityTag("*"));
+    }
+
+    @Test
+    public void testSendsSmallBodyUnchanged() throws IOException {
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 4);
+        AtomicInteger started = new AtomicInteger();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressingOutputStream body = new CompressingOutputStream(out, Encoding.GZIP, pool, BODY.length,
+                started::incrementAndGet);
+
+        body.write(BODY, 0, 10);
+        body.flush();
+        assertEquals(0, out.size());
+        body.write(BODY, 10, BODY.length - 10);
+        body.close();
+
+        assertFalse(body.isCompressed());
+        assertEquals(0, started.get());
+        assertArrayEquals(BODY, out.toByteArray());
+    }
+
+    @Test
+    public void testGzipsBodyOverThreshold() throws IOException {
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 4);
+        AtomicInteger started = new AtomicInteger();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressingOutputStream body = new CompressingOutputStream(out, Encoding.GZIP, pool, 100,
+                started::incrementAndGet);
+
+        // Byte by byte through the threshold, then the rest at once
+        for (int i = 0; i < 150; i++) {
+            body.write(BODY[i]);
+        }
+        body.write(BODY, 150, BODY.length - 150);
+        body.close();
+
+        assertTrue(body.isCompressed());
+        assertEquals(1, started.get());
+        assertEquals(BODY.length, body.getBytesIn());
+        assertEquals(out.size(), body.getBytesOut());
+        assertTrue(out.size() < BODY.length / 4);
+        assertArrayEquals(BODY, readAll(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testDeflatesWithPooledDeflater() throws IOException {
+        DeflaterPool pool = new DeflaterPool(Deflater.BEST_SPEED, false, 1);
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CompressingOutputStream body = new CompressingOutputStream(out, Encoding.DEFLATE, pool, 0, () -> { });
+            body.write(BODY);
+            body.close();
+            assertArrayEquals(BODY, readAll(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))));
+            assertEquals(1, pool.getIdleCount());
+        }
+
+        Deflater first = pool.borrow();
+        Deflater second = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.getIdleCount());
+        pool.close();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
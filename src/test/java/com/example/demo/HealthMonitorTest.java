@@ -0,0 +1,43 @@
+package com.example.demo;
+
+import com.example.demo.health.HealthMonitor;
+import com.example.demo.service.TestRunnerService;
+import com.example.demo.service.UserService;
+import org.eclipse.microprofile.health.HealthCheckResponse.Status;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HealthMonitorTest {
+
+    @Test
+    public void testNotReadyUntilStoreIsLoaded() {
+        HealthMonitor monitor = new HealthMonitor(new UserService(), new TestRunnerService(), 1.0, 1.0);
+        monitor.refresh();
+        assertFalse(monitor.isReady());
+        assertEquals(Status.DOWN, monitor.getStoreStatus().getStatus());
+
+        monitor.loadStore();
+        monitor.refresh();
+        assertTrue(monitor.isReady());
+        assertEquals(3, monitor.getStoreStatus().getData().get().get("users"));
+        assertEquals(Status.UP, monitor.getExecutorStatus().getStatus());
+        assertEquals(false, monitor.getExecutorStatus().getData().get().get("saturated"));
+        assertTrue(monitor.isLive());
+    }
+
+    @Test
+    public void testThresholdsTurnChecksDown() {
+        // At a ratio of 0 an empty run queue already counts as full, and any heap as exhausted
+        HealthMonitor monitor = new HealthMonitor(new UserService(), new TestRunnerService(), 0, 0);
+        monitor.loadStore();
+        monitor.refresh();
+
+        // A full test run queue is reported, but the node still serves users
+        assertEquals(Status.UP, monitor.getExecutorStatus().getStatus());
+        assertEquals(true, monitor.getExecutorStatus().getData().get().get("saturated"));
+        assertTrue(monitor.isReady());
+        assertEquals(Status.DOWN, monitor.getHeapStatus().getStatus());
+        assertFalse(monitor.isLive());
+    }
+}
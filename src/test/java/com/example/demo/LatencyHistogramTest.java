@@ -0,0 +1,50 @@
+package com.example.demo;
+
+import com.example.demo.service.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertWithin(50_000_000, histogram.percentile(50));
+        assertWithin(99_000_000, histogram.percentile(99));
+        assertWithin(99_900_000, histogram.percentile(99.9));
+        assertWithin(100_000_000, histogram.max());
+        assertEquals(50_000_500, histogram.mean(), 50_000_500 * 0.02);
+    }
+
+    @Test
+    public void testSmallValuesAreExactAndHistogramsMerge() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            first.record(i);
+            second.record(Long.MAX_VALUE);
+        }
+        first.record(-5);
+
+        assertEquals(0, first.percentile(0));
+        assertEquals(49, first.percentile(50));
+        assertEquals(99, first.max());
+
+        first.add(second);
+        assertEquals(201, first.count());
+        assertEquals(Long.MAX_VALUE, first.percentile(100));
+        assertEquals(0, new LatencyHistogram().percentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        // Reported values are bucket upper bounds, at most 1/64 above the recorded value
+        assertTrue(actual >= expected && actual <= expected + expected / 64 + 1,
+                "expected about " + expected + " but was " + actual);
+    }
+}
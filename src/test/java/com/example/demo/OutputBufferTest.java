@@ -0,0 +1,57 @@
+package com.example.demo;
+
+import com.example.demo.service.OutputBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutputBufferTest {
+
+    @Test
+    public void testReadsFromOffsetsAcrossChunks() {
+        OutputBuffer buffer = new OutputBuffer(1024 * 1024);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            String line = "line " + i + "\n";
+            buffer.append(line);
+            expected.append(line);
+        }
+
+        assertEquals(expected.length(), buffer.length());
+        assertEquals(expected.toString(), buffer.toString());
+
+        // Tail the log in small reads and reassemble it
+        StringBuilder tailed = new StringBuilder();
+        long next = 0;
+        while (next < buffer.length()) {
+            OutputBuffer.Slice slice = buffer.read(next, 3000);
+            assertEquals(next, slice.getFrom());
+            assertFalse(slice.isTruncated());
+            tailed.append(slice.getText());
+            next = slice.getNext();
+        }
+        assertEquals(expected.toString(), tailed.toString());
+
+        assertEquals("line 4999\n", buffer.read(-10, 100).getText());
+        assertEquals("", buffer.read(buffer.length() + 5, 100).getText());
+    }
+
+    @Test
+    public void testDropsOldestTextBeyondCap() {
+        OutputBuffer buffer = new OutputBuffer(20000);
+        String line = "0123456789".repeat(10) + "\n";
+        for (int i = 0; i < 1000; i++) {
+            buffer.append(line);
+        }
+
+        long length = 1000L * line.length();
+        assertEquals(length, buffer.length());
+        assertTrue(buffer.retainedChars() <= 20000 + 8192);
+        assertTrue(buffer.retainedChars() >= 20000);
+
+        OutputBuffer.Slice slice = buffer.read(0, 10);
+        assertTrue(slice.isTruncated());
+        assertEquals(length - buffer.retainedChars(), slice.getFrom());
+        assertEquals(slice.getFrom() + 10, slice.getNext());
+    }
+}
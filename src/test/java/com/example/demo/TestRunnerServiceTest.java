@@ -0,0 +1,248 @@
+package com.example.demo;
+
+import com.example.demo.model.LoadTestReport;
+import com.example.demo.model.TestResult;
+import com.example.demo.model.TestStatus;
+import com.example.demo.model.TestSuite;
+import com.example.demo.service.TestRunRejectedException;
+import com.example.demo.service.TestRunnerService;
+import com.example.demo.service.TestRunnerService.TestSuiteExecution;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRunnerServiceTest {
+
+    @TempDir
+    Path archiveDir;
+
+    @Test
+    public void testEvictsOldestFinishedExecutionsToArchive() throws Exception {
+        TestRunnerService service = new TestRunnerService(2, Duration.ofHours(1), 1024 * 1024, archiveDir);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String id = service.runSpecificTest("UserServiceTest", "testCreateUser");
+            ids.add(id);
+            awaitCompletion(service, id);
+        }
+
+        assertEquals(2, service.getAllExecutions().size());
+        assertTrue(service.getAllExecutions().stream().noneMatch(e -> e.getId().equals(ids.get(0))));
+
+        TestSuiteExecution archived = service.getTestExecution(ids.get(0));
+        assertNotNull(archived);
+        assertEquals("COMPLETED", archived.getStatus());
+        assertEquals(1, archived.getResults().size());
+        assertEquals("testCreateUser", archived.getResults().get(0).getTestMethod());
+        assertEquals(TestStatus.PASSED, archived.getResults().get(0).getStatus());
+        assertTrue(archived.getOutput().contains("Tests completed: 1 passed, 0 failed, 0 skipped"));
+
+        assertNull(service.getTestExecution("../../etc/passwd"));
+    }
+
+    @Test
+    public void testEvictsByTotalOutputWithoutArchive() throws Exception {
+        TestRunnerService service = new TestRunnerService(100, Duration.ofHours(1), 1, null);
+
+        String id = service.runSpecificTest("UserServiceTest", "testDeleteUser");
+        awaitCompletion(service, id);
+
+        assertTrue(service.getAllExecutions().isEmpty());
+        assertNull(service.getTestExecution(id));
+    }
+
+    @Test
+    public void testRejectsRunsWhenQueueIsFull() throws Exception {
+        TestRunnerService service = new TestRunnerService(100, Duration.ofHours(1), 1024 * 1024, null);
+
+        // Two runners and ten queue slots by default; the thirteenth run has nowhere to go
+        BlockingTests.release = new CountDownLatch(1);
+        try {
+            List<String> accepted = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                accepted.add(service.runSpecificTest(BLOCKING_TESTS, "waitForRelease"));
+            }
+            TestRunRejectedException rejected = assertThrows(TestRunRejectedException.class,
+                    () -> service.runSpecificTest(BLOCKING_TESTS, "waitForRelease"));
+            assertTrue(rejected.getRetryAfterSeconds() >= 1);
+
+            Map<String, Object> stats = service.getExecutorStats();
+            assertTrue((Integer) stats.get("activeRuns") <= 2);
+            assertEquals(10, stats.get("queuedRuns"));
+            assertEquals(1L, stats.get("rejectedRuns"));
+            assertEquals("QUEUED", service.getTestExecution(accepted.get(11)).getStatus());
+            assertEquals(12, service.getAllExecutions().size());
+        } finally {
+            BlockingTests.release.countDown();
+        }
+    }
+
+    @Test
+    public void testRunsRealTestsAndReportsFailures() throws Exception {
+        TestRunnerService service = new TestRunnerService(100, Duration.ofHours(1), 1024 * 1024, null);
+
+        String id = service.runSpecificTest(FAILING_TESTS, "failsWithMessage");
+        awaitCompletion(service, id);
+
+        TestSuiteExecution execution = service.getTestExecution(id);
+        assertEquals("COMPLETED", execution.getStatus());
+        assertEquals(1, execution.getResults().size());
+        TestResult result = execution.getResults().get(0);
+        assertEquals("TestRunnerServiceTest$FailingTests", result.getTestClass());
+        assertEquals(TestStatus.FAILED, result.getStatus());
+        assertEquals("expected failure", result.getMessage());
+        assertTrue(result.getStackTrace().contains("failsWithMessage"));
+        assertTrue(execution.getOutput().contains("Tests completed: 0 passed, 1 failed, 0 skipped"));
+
+        String missing = service.runSpecificTest("NoSuchTest", "anything");
+        awaitCompletion(service, missing);
+        assertEquals("FAILED", service.getTestExecution(missing).getStatus());
+        assertTrue(service.getTestExecution(missing).getOutput().contains("NoSuchTest is not on the classpath"));
+    }
+
+    @Test
+    public void testDiscoversSuiteTestMethods() {
+        Map<String, List<String>> tests = new TestRunnerService().getAvailableTests();
+
+        assertTrue(tests.get("UserServiceTest").contains("testCreateUser"));
+        assertTrue(tests.get("UserResourceIT").contains("testHealthEndpoint"));
+    }
+
+    @Test
+    public void testListenerGetsReplayThenDeltas() {
+        TestSuiteExecution execution = new TestSuiteExecution("listened");
+        execution.addResult(new TestResult("UserServiceTest", "testGetAllUsers", TestStatus.PASSED, null, 5));
+        execution.addOutput("first");
+
+        List<String> events = new ArrayList<>();
+        execution.subscribe(new TestSuiteExecution.Listener() {
+            @Override
+            public void onResult(TestResult result) {
+                events.add("result:" + result.getTestMethod());
+            }
+
+            @Override
+            public void onOutput(String text) {
+                events.add("output:" + text);
+            }
+
+            @Override
+            public void onStatus(TestSuiteExecution changed) {
+                events.add("status:" + changed.getStatus());
+            }
+        });
+        execution.addResult(new TestResult("UserServiceTest", "testCreateUser", TestStatus.PASSED, null, 7));
+        execution.addOutput("second");
+        execution.setStatus("COMPLETED");
+
+        assertEquals(List.of("result:testGetAllUsers", "output:first\n", "status:RUNNING",
+                "result:testCreateUser", "output:second\n", "status:COMPLETED"), events);
+        assertTrue(execution.isFinished());
+    }
+
+    @Test
+    public void testLoadTestReportsLatencyPercentiles() throws Exception {
+        TestRunnerService service = new TestRunnerService(100, Duration.ofHours(1), 1024 * 1024, null);
+
+        String id = service.runLoadTest("service", "read", 4, 2000, 2);
+        awaitCompletion(service, id);
+
+        TestSuiteExecution execution = service.getTestExecution(id);
+        assertEquals("COMPLETED", execution.getStatus());
+        assertEquals(TestSuiteExecution.TYPE_LOAD, execution.getType());
+        LoadTestReport load = execution.getLoad();
+        assertEquals(0, load.getErrors());
+        // A fixed rate of 2000 requests per second over two seconds
+        assertTrue(load.getRequests() > 3000 && load.getRequests() <= 4000, "requests: " + load.getRequests());
+        assertTrue(load.getP50Millis() <= load.getP99Millis());
+        assertTrue(load.getP99Millis() <= load.getP999Millis());
+        assertTrue(load.getP999Millis() <= load.getMaxMillis());
+        assertTrue(execution.getOutput().contains("Load test completed"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.runLoadTest("ftp", "read", 4, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> service.runLoadTest("service", "scan", 4, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> service.runLoadTest("service", "read", 0, 0, 1));
+    }
+
+    @Test
+    public void testWriteLoadTestCreatesAndDeletesUsers() throws Exception {
+        TestRunnerService service = new TestRunnerService(100, Duration.ofHours(1), 1024 * 1024, null);
+
+        String id = service.runLoadTest("service", "write", 8, 1000, 1);
+        awaitCompletion(service, id);
+
+        LoadTestReport load = service.getTestExecution(id).getLoad();
+        assertEquals("COMPLETED", service.getTestExecution(id).getStatus());
+        assertEquals("write", load.getWorkload());
+        assertEquals(0, load.getErrors());
+        assertTrue(load.getRequests() > 0);
+    }
+
+    @Test
+    public void testSummaryIsMaintainedAsResultsArrive() {
+        TestSuiteExecution execution = new TestSuiteExecution("counted");
+        execution.addResult(new TestResult("UserServiceTest", "testGetAllUsers", TestStatus.PASSED, null, 5));
+        execution.addResult(new TestResult("UserServiceTest", "testCreateUser", TestStatus.FAILED, "boom", 7));
+        execution.addResult(new TestResult("UserServiceTest", "testDeleteUser", TestStatus.PASSED, null, 11));
+
+        TestSuite summary = execution.getSummary();
+        assertEquals(3, summary.getTotalTests());
+        assertEquals(2, summary.getPassedTests());
+        assertEquals(1, summary.getFailedTests());
+        assertEquals(0, summary.getSkippedTests());
+        assertEquals(23, summary.getTotalDuration());
+
+        execution.setResults(List.of(new TestResult("UserServiceTest", "testFindByUsername", TestStatus.SKIPPED, null, 0)));
+        assertEquals(1, execution.getSummary().getTotalTests());
+        assertEquals(1, execution.count(TestStatus.SKIPPED));
+        assertEquals(0, execution.count(TestStatus.PASSED));
+    }
+
+    private static final String BLOCKING_TESTS = "com.example.demo.TestRunnerServiceTest$BlockingTests";
+    private static final String FAILING_TESTS = "com.example.demo.TestRunnerServiceTest$FailingTests";
+
+    // Run through the test runner only; Surefire skips nested classes
+    static class BlockingTests {
+        static volatile CountDownLatch release = new CountDownLatch(0);
+
+        @Test
+        void waitForRelease() throws InterruptedException {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    static class FailingTests {
+        @Test
+        void failsWithMessage() {
+            fail("expected failure");
+        }
+
+        @Test
+        void passes() {
+        }
+    }
+
+    private static void awaitCompletion(TestRunnerService service, String id) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            TestSuiteExecution execution = service.getTestExecution(id);
+            if (execution == null || execution.getEndTime() != null) {
+                // Give the completion hook time to run its eviction pass
+                Thread.sleep(50);
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("Execution " + id + " did not finish");
+    }
+}
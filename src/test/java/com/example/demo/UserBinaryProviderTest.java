@@ -0,0 +1,123 @@
+package com.example.demo;
+
+import com.example.demo.model.User;
+import com.example.demo.rest.UserBinaryProvider;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.annotation.Annotation;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserBinaryProviderTest {
+
+    private static final Annotation[] NONE = new Annotation[0];
+    private static final MediaType BINARY = new MediaType("application", "x-user-binary");
+
+    private final UserBinaryProvider provider = new UserBinaryProvider();
+
+    @Test
+    public void testRoundTripsSingleUser() throws IOException {
+        User user = new User(7L, "binary", "binary@example.com", "Bïnary Üser");
+        user.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123));
+        user.setVersion(3);
+
+        User read = (User) read(User.class, User.class, write(user, User.class, User.class));
+        assertEquals(7L, read.getId());
+        assertEquals("binary", read.getUsername());
+        assertEquals("binary@example.com", read.getEmail());
+        assertEquals("Bïnary Üser", read.getFullName());
+        assertEquals(user.getCreatedAt(), read.getCreatedAt());
+        assertEquals(3, read.getVersion());
+    }
+
+    @Test
+    public void testReadsMissingIdAsNull() throws IOException {
+        User user = new User(null, "new", "new@example.com", null);
+        User read = (User) read(User.class, User.class, write(user, User.class, User.class));
+        assertNull(read.getId());
+        assertNull(read.getFullName());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRoundTripsListAsConsecutiveFrames() throws IOException {
+        GenericEntity<List<User>> users = new GenericEntity<>(List.of(
+                new User(1L, "one", "one@example.com", "One"),
+                new User(2L, "two", "two@example.com", "Two"))) { };
+        assertTrue(provider.isWriteable(users.getRawType(), users.getType(), NONE, BINARY));
+        byte[] body = write(users.getEntity(), users.getRawType(), users.getType());
+
+        List<User> read = (List<User>) read(List.class, users.getType(), body);
+        assertEquals(List.of("one", "two"), read.stream().map(User::getUsername).toList());
+        assertEquals(0, ((List<?>) read(List.class, users.getType(), new byte[0])).size());
+    }
+
+    @Test
+    public void testOnlyHandlesUsers() {
+        GenericEntity<List<Map<String, Object>>> maps = new GenericEntity<>(List.<Map<String, Object>>of()) { };
+        assertFalse(provider.isWriteable(maps.getRawType(), maps.getType(), NONE, BINARY));
+        assertFalse(provider.isWriteable(List.class, List.class, NONE, BINARY));
+        assertFalse(provider.isReadable(Map.class, Map.class, NONE, BINARY));
+    }
+
+    @Test
+    public void testDetectsTruncatedFrames() throws IOException {
+        byte[] body = write(new User(1L, "cut", "cut@example.com", null), User.class, User.class);
+
+        // The provider turns these into 400 Bad Request
+        assertNull(UserBinaryProvider.readFrame(frames(new byte[0])));
+        assertThrows(EOFException.class, () -> UserBinaryProvider.readFrame(frames(Arrays.copyOf(body, body.length - 3))));
+        assertThrows(EOFException.class, () -> UserBinaryProvider.readFrame(frames(new byte[] {0, 0})));
+        assertThrows(StreamCorruptedException.class, () -> UserBinaryProvider.readFrame(frames(new byte[] {0x7f, 0, 0, 0})));
+    }
+
+    @Test
+    public void testDetectsRecordWithoutVersion() throws IOException {
+        byte[] body = write(new User(1L, "old", "old@example.com", null), User.class, User.class);
+        // Drop the trailing version but keep the frame length consistent with what is left
+        byte[] shortened = Arrays.copyOf(body, body.length - Long.BYTES);
+        ByteBuffer.wrap(shortened).putInt(0, shortened.length - Integer.BYTES);
+
+        // A record is never read with a made up version; the provider turns this into 400
+        assertThrows(StreamCorruptedException.class, () -> UserBinaryProvider.readFrame(frames(shortened)));
+    }
+
+    @Test
+    public void testDetectsInvalidCreatedAt() throws IOException {
+        User user = new User(1L, "when", "when@example.com", null);
+        user.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 30));
+        byte[] body = write(user, User.class, User.class);
+        // Frame length, id and createdAt seconds come before the nanos
+        ByteBuffer.wrap(body).putInt(Integer.BYTES + 2 * Long.BYTES, -1);
+
+        // The provider turns this into 400 Bad Request rather than a DateTimeException
+        assertThrows(StreamCorruptedException.class, () -> UserBinaryProvider.readFrame(frames(body)));
+    }
+
+    private static DataInputStream frames(byte[] body) {
+        return new DataInputStream(new ByteArrayInputStream(body));
+    }
+
+    private byte[] write(Object entity, Class<?> type, java.lang.reflect.Type genericType) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        provider.writeTo(entity, type, genericType, NONE, BINARY, null, output);
+        return output.toByteArray();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object read(Class type, java.lang.reflect.Type genericType, byte[] body) throws IOException {
+        return provider.readFrom(type, genericType, NONE, BINARY, null, new ByteArrayInputStream(body));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo;
+
+import com.example.demo.model.User;
+import com.example.demo.rest.UserJsonCache;
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserJsonCacheTest {
+
+    @Test
+    public void testServesCachedBytesForSameVersion() {
+        UserJsonCache cache = new UserJsonCache(1024 * 1024);
+        User user = new User(1L, "cached", "cached@example.com", null);
+        user.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+
+        byte[] first = cache.get(user);
+        assertSame(first, cache.get(user));
+        assertEquals("{\"createdAt\":\"2024-05-01T12:30:15\",\"email\":\"cached@example.com\","
+                + "\"id\":1,\"username\":\"cached\",\"version\":1}", new String(first, StandardCharsets.UTF_8));
+
+        user.setVersion(2);
+        assertNotSame(first, cache.get(user));
+
+        cache.invalidate(1L);
+        cache.get(user);
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(3L, stats.get("misses"));
+        assertEquals(1L, stats.get("entries"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedWhenOverBudget() {
+        // Room for a single entry per stripe; ids 1, 17 and 33 share a stripe
+        UserJsonCache cache = new UserJsonCache(16 * 300);
+        User one = new User(1L, "one", "one@example.com", "One");
+        User seventeen = new User(17L, "seventeen", "seventeen@example.com", "Seventeen");
+        User thirtyThree = new User(33L, "thirty_three", "thirty_three@example.com", "Thirty Three");
+
+        cache.get(one);
+        cache.get(seventeen);
+        cache.get(thirtyThree);
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(2L, stats.get("evictions"));
+        assertEquals(1L, stats.get("entries"));
+        assertTrue((Long) stats.get("bytes") <= 300);
+
+        cache.get(thirtyThree);
+        assertEquals(1L, cache.getStats().get("hits"));
+    }
+}
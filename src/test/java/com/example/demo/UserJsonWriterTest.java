@@ -0,0 +1,57 @@
+package com.example.demo;
+
+import com.example.demo.model.User;
+import com.example.demo.rest.UserJsonWriter;
+import com.example.demo.rest.UserProjection;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserJsonWriterTest {
+
+    private static List<User> users() {
+        User first = new User(1L, "first", "first@example.com", "First User");
+        first.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+        User second = new User(2L, "second", "second@example.com", null);
+        second.setCreatedAt(LocalDateTime.of(2024, 5, 2, 8, 0));
+        return List.of(first, second);
+    }
+
+    private static String write(StreamingOutput output) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        output.write(bytes);
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testArrayMatchesJsonBinding() throws IOException {
+        // JSON-B orders properties by name and leaves out null ones
+        assertEquals("[{\"createdAt\":\"2024-05-01T12:30:15\",\"email\":\"first@example.com\","
+                + "\"fullName\":\"First User\",\"id\":1,\"username\":\"first\",\"version\":1},"
+                + "{\"createdAt\":\"2024-05-02T08:00:00\",\"email\":\"second@example.com\","
+                + "\"id\":2,\"username\":\"second\",\"version\":1}]",
+                write(UserJsonWriter.array(users(), UserProjection.ALL)));
+    }
+
+    @Test
+    public void testAppliesProjection() throws IOException {
+        UserProjection projection = UserProjection.parse("username,id");
+
+        assertEquals("[{\"username\":\"first\",\"id\":1},{\"username\":\"second\",\"id\":2}]",
+                write(UserJsonWriter.array(users(), projection)));
+        assertEquals("{\"username\":\"first\",\"id\":1}\n{\"username\":\"second\",\"id\":2}\n",
+                write(UserJsonWriter.ndjson(users(), projection)));
+    }
+
+    @Test
+    public void testEmptyStore() throws IOException {
+        assertEquals("[]", write(UserJsonWriter.array(List.of(), UserProjection.ALL)));
+        assertEquals("", write(UserJsonWriter.ndjson(List.of(), UserProjection.ALL)));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo;
+
+import com.example.demo.model.User;
+import com.example.demo.persistence.FsyncPolicy;
+import com.example.demo.persistence.UserPersistence;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserPersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    private final Map<Long, User> recovered = new TreeMap<>();
+
+    private final UserPersistence.Replay replay = new UserPersistence.Replay() {
+        @Override
+        public void upsert(User user) {
+            recovered.put(user.getId(), user);
+        }
+
+        @Override
+        public void delete(long id) {
+            recovered.remove(id);
+        }
+    };
+
+    @Test
+    public void testReplaysLogAfterRestart() throws IOException {
+        try (UserPersistence persistence = open(FsyncPolicy.ALWAYS)) {
+            assertFalse(persistence.isRecovered());
+            persistence.awaitDurable(persistence.logUpsert(new User(1L, "one", "one@example.com", "One")));
+            persistence.logUpsert(new User(2L, "two", "two@example.com", "Two"));
+            persistence.logDelete(1L);
+            User renamed = new User(2L, "two_renamed", "two@example.com", null);
+            renamed.setVersion(2);
+            persistence.awaitDurable(persistence.logUpsert(renamed));
+        }
+
+        try (UserPersistence persistence = open(FsyncPolicy.ALWAYS)) {
+            assertTrue(persistence.isRecovered());
+            assertEquals(2, persistence.getRecoveredIdHighWater());
+            assertEquals(List.of(2L), List.copyOf(recovered.keySet()));
+            User two = recovered.get(2L);
+            assertEquals("two_renamed", two.getUsername());
+            assertNull(two.getFullName());
+            assertEquals(2, two.getVersion());
+            assertNotNull(two.getCreatedAt());
+        }
+    }
+
+    @Test
+    public void testSnapshotReplacesOlderSegments() throws IOException {
+        try (UserPersistence persistence = open(FsyncPolicy.INTERVAL)) {
+            Map<Long, User> store = new TreeMap<>();
+            for (long id = 1; id <= 3; id++) {
+                User user = new User(id, "user" + id, "user" + id + "@example.com", "User " + id);
+                store.put(id, user);
+                persistence.logUpsert(user);
+            }
+            persistence.snapshot(store.values(), () -> 5);
+            persistence.logDelete(3L);
+        }
+
+        assertEquals(1, segments().size());
+
+        try (UserPersistence persistence = open(FsyncPolicy.INTERVAL)) {
+            assertEquals(List.of(1L, 2L), List.copyOf(recovered.keySet()));
+            assertEquals(5, persistence.getRecoveredIdHighWater());
+        }
+    }
+
+    @Test
+    public void testTruncatesTornTailRecord() throws IOException {
+        try (UserPersistence persistence = open(FsyncPolicy.NEVER)) {
+            persistence.logUpsert(new User(1L, "one", "one@example.com", "One"));
+            persistence.logUpsert(new User(2L, "two", "two@example.com", "Two"));
+        }
+        Path newest = segments().get(segments().size() - 1);
+        // A crash in the middle of a write leaves a partial frame behind
+        Files.write(newest, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (UserPersistence persistence = open(FsyncPolicy.NEVER)) {
+            assertEquals(List.of(1L, 2L), List.copyOf(recovered.keySet()));
+            persistence.logUpsert(new User(3L, "three", "three@example.com", "Three"));
+        }
+
+        recovered.clear();
+        open(FsyncPolicy.NEVER).close();
+        assertEquals(List.of(1L, 2L, 3L), List.copyOf(recovered.keySet()));
+    }
+
+    private UserPersistence open(FsyncPolicy policy) throws IOException {
+        return UserPersistence.open(directory, policy, 10, replay);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
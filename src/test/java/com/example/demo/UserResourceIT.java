@@ -5,6 +5,7 @@ import io.restassured.http.ContentType;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import java.util.List;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
@@ -41,6 +42,36 @@ public class UserResourceIT {
             .body("$", hasSize(greaterThanOrEqualTo(3)));
     }
 
+    @Test
+    public void testStreamedUsersMatchList() {
+        List<Object> listed = given()
+            .when()
+            .get("/users")
+            .then()
+            .statusCode(200)
+            .extract()
+            .jsonPath()
+            .getList("$");
+
+        given()
+            .queryParam("stream", true)
+            .when()
+            .get("/users")
+            .then()
+            .statusCode(200)
+            .contentType(ContentType.JSON)
+            .body("$", equalTo(listed));
+
+        given()
+            .queryParam("stream", true)
+            .queryParam("fields", "id,username")
+            .when()
+            .get("/users")
+            .then()
+            .statusCode(200)
+            .body("[0].keySet()", contains("id", "username"));
+    }
+
     @Test
     public void testCreateUser() {
         String userJson = "{\"username\":\"integration_test\",\"email\":\"integration@test.com\",\"fullName\":\"Integration Test User\"}";
@@ -132,4 +163,64 @@ public class UserResourceIT {
             .then()
             .statusCode(404);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConditionalRequests() {
+        String userJson = "{\"username\":\"etag_user\",\"email\":\"etag@test.com\",\"fullName\":\"ETag User\"}";
+
+        Integer userId = given()
+            .contentType(ContentType.JSON)
+            .body(userJson)
+            .when()
+            .post("/users")
+            .then()
+            .statusCode(201)
+            .extract()
+            .path("id");
+
+        String etag = given()
+            .when()
+            .get("/users/" + userId)
+            .then()
+            .statusCode(200)
+            .header("ETag", notNullValue())
+            .extract()
+            .header("ETag");
+
+        given()
+            .header("If-None-Match", etag)
+            .when()
+            .get("/users/" + userId)
+            .then()
+            .statusCode(304);
+
+        String updatedJson = "{\"username\":\"etag_user\",\"email\":\"etag@test.com\",\"fullName\":\"Updated\"}";
+        given()
+            .contentType(ContentType.JSON)
+            .header("If-Match", etag)
+            .body(updatedJson)
+            .when()
+            .put("/users/" + userId)
+            .then()
+            .statusCode(200)
+            .body("version", equalTo(2))
+            .header("ETag", not(equalTo(etag)));
+
+        // The old tag is stale now
+        given()
+            .contentType(ContentType.JSON)
+            .header("If-Match", etag)
+            .body(updatedJson)
+            .when()
+            .put("/users/" + userId)
+            .then()
+            .statusCode(412);
+
+        given()
+            .header("If-Match", etag)
+            .when()
+            .delete("/users/" + userId)
+            .then()
+            .statusCode(412);
+    }
+}
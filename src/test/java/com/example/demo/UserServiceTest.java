@@ -1,11 +1,19 @@
 package com.example.demo;
 
+import com.example.demo.model.BulkItemResult;
+import com.example.demo.model.BulkOperation;
 import com.example.demo.model.User;
+import com.example.demo.rest.UserResource;
+import com.example.demo.service.DuplicateUserException;
+import com.example.demo.service.InvalidUserException;
 import com.example.demo.service.UserService;
+import com.example.demo.service.VersionConflictException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -75,11 +83,239 @@ public class UserServiceTest {
 
     @Test
     public void testFindByUsername() {
+        long lookups = userService.getIndexLookups();
+        long hits = userService.getIndexHits();
         Optional<User> user = userService.findByUsername("john_doe");
         assertTrue(user.isPresent());
         assertEquals("john_doe", user.get().getUsername());
 
         Optional<User> notFound = userService.findByUsername("non_existent");
         assertFalse(notFound.isPresent());
+
+        assertEquals(lookups + 2, userService.getIndexLookups());
+        assertEquals(hits + 1, userService.getIndexHits());
+    }
+
+    @Test
+    public void testCreateUserRejectsDuplicateUsername() {
+        User duplicate = new User(null, "john_doe", "other@example.com", "Other John");
+        assertThrows(DuplicateUserException.class, () -> userService.createUser(duplicate));
+
+        // The rejected user's email must not stay reserved
+        User retry = new User(null, "other_john", "other@example.com", "Other John");
+        assertNotNull(userService.createUser(retry).getId());
+        assertEquals(4, userService.getAllUsers().size());
+    }
+
+    @Test
+    public void testCreateUserRejectsDuplicateEmailIgnoringCase() {
+        User duplicate = new User(null, "johnny", "JOHN@example.com", "Johnny");
+        assertThrows(DuplicateUserException.class, () -> userService.createUser(duplicate));
+
+        // The rejected user's username must not stay reserved
+        assertFalse(userService.findByUsername("johnny").isPresent());
+        User retry = new User(null, "johnny", "johnny@example.com", "Johnny");
+        assertNotNull(userService.createUser(retry).getId());
+    }
+
+    @Test
+    public void testUpdateUserMaintainsIndexes() {
+        User createdUser = userService.createUser(new User(null, "rename_me", "rename@example.com", "Rename Me"));
+
+        userService.updateUser(createdUser.getId(), new User(null, "renamed", "renamed@example.com", "Renamed"));
+
+        assertFalse(userService.findByUsername("rename_me").isPresent());
+        assertFalse(userService.findByEmail("rename@example.com").isPresent());
+        assertEquals(createdUser.getId(), userService.findByUsername("renamed").get().getId());
+        assertEquals(createdUser.getId(), userService.findByEmail("Renamed@Example.com").get().getId());
+
+        // The old username is free again
+        assertNotNull(userService.createUser(new User(null, "rename_me", "new@example.com", "New")).getId());
+    }
+
+    @Test
+    public void testUpdateUserRejectsTakenUsername() {
+        User createdUser = userService.createUser(new User(null, "taker", "taker@example.com", "Taker"));
+
+        User conflicting = new User(null, "jane_smith", "taker2@example.com", "Taker");
+        assertThrows(DuplicateUserException.class, () -> userService.updateUser(createdUser.getId(), conflicting));
+
+        // Neither the user nor the indexes changed
+        assertEquals("taker", userService.getUserById(createdUser.getId()).get().getUsername());
+        assertFalse(userService.findByEmail("taker2@example.com").isPresent());
+        assertEquals("jane_smith", userService.findByUsername("jane_smith").get().getUsername());
+    }
+
+    @Test
+    public void testDeleteUserReleasesIndexes() {
+        User createdUser = userService.createUser(new User(null, "short_lived", "short@example.com", "Short Lived"));
+        userService.deleteUser(createdUser.getId());
+
+        assertFalse(userService.findByUsername("short_lived").isPresent());
+        assertFalse(userService.findByEmail("short@example.com").isPresent());
+        assertNotNull(userService.createUser(new User(null, "short_lived", "short@example.com", "Again")).getId());
+    }
+
+    @Test
+    public void testGetUsersPagesInIdOrder() {
+        for (int i = 0; i < 5; i++) {
+            userService.createUser(new User(null, "page_" + i, "page" + i + "@example.com", "Page " + i));
+        }
+
+        List<User> first = userService.getUsers(null, 3);
+        assertEquals(3, first.size());
+        assertEquals(Long.valueOf(1), first.get(0).getId());
+
+        List<User> second = userService.getUsers(first.get(2).getId(), 3);
+        assertEquals(3, second.size());
+        assertEquals(Long.valueOf(4), second.get(0).getId());
+
+        List<User> last = userService.getUsers(second.get(2).getId(), 3);
+        assertEquals(2, last.size());
+        assertTrue(userService.getUsers(last.get(1).getId(), 3).isEmpty());
+
+        userService.deleteUser(5L);
+        assertEquals(Long.valueOf(6), userService.getUsers(4L, 1).get(0).getId());
+    }
+
+    @Test
+    public void testApplyBulk() {
+        List<BulkItemResult> results = userService.applyBulk(Arrays.asList(
+                new BulkOperation(BulkOperation.CREATE, null, new User(null, "bulk_a", "a@bulk.com", "Bulk A")),
+                new BulkOperation(BulkOperation.CREATE, null, new User(null, "bulk_b", "b@bulk.com", "Bulk B")),
+                new BulkOperation(BulkOperation.CREATE, null, new User(null, "john_doe", "c@bulk.com", "Dup")),
+                new BulkOperation(BulkOperation.UPDATE, 1L, new User(null, "john_updated", "john@example.com", "John")),
+                new BulkOperation(BulkOperation.DELETE, 2L, null),
+                new BulkOperation(BulkOperation.DELETE, 999L, null),
+                new BulkOperation("upsert", 1L, null),
+                null));
+
+        assertEquals(8, results.size());
+        assertEquals(201, results.get(0).getStatus());
+        assertEquals(201, results.get(1).getStatus());
+        assertEquals(results.get(0).getId() + 1, results.get(1).getId());
+        assertEquals(409, results.get(2).getStatus());
+        assertEquals(200, results.get(3).getStatus());
+        assertEquals(204, results.get(4).getStatus());
+        assertEquals(404, results.get(5).getStatus());
+        assertEquals(400, results.get(6).getStatus());
+        assertEquals(400, results.get(7).getStatus());
+
+        assertTrue(userService.findByUsername("bulk_b").isPresent());
+        assertTrue(userService.findByUsername("john_updated").isPresent());
+        assertFalse(userService.getUserById(2L).isPresent());
+        assertEquals(4, userService.getAllUsers().size());
+    }
+
+    @Test
+    public void testRejectsFieldsTooLongToStore() {
+        String tooLong = "x".repeat(70000);
+        assertThrows(InvalidUserException.class,
+                () -> userService.createUser(new User(null, "long_name", "long@example.com", tooLong)));
+        assertThrows(InvalidUserException.class,
+                () -> userService.updateUser(1L, new User(null, "john_doe", "john@example.com", tooLong)));
+
+        List<BulkItemResult> results = userService.applyBulk(List.of(
+                new BulkOperation(BulkOperation.CREATE, null, new User(null, tooLong, "bulk@example.com", null))));
+        assertEquals(400, results.get(0).getStatus());
+
+        // Nothing was reserved for the rejected users
+        assertFalse(userService.findByUsername("long_name").isPresent());
+        assertNotNull(userService.createUser(new User(null, "long_name", "long@example.com", "Short")).getId());
+        assertEquals(4, userService.getAllUsers().size());
+    }
+
+    @Test
+    public void testVersionsAndConditionalWrites() {
+        String storeVersion = userService.getStoreVersion();
+        User created = userService.createUser(new User(null, "versioned", "versioned@example.com", "V"));
+        assertEquals(1, created.getVersion());
+        assertNotEquals(storeVersion, userService.getStoreVersion());
+
+        User updated = userService.updateUser(created.getId(),
+                new User(null, "versioned", "versioned@example.com", "V2"), Set.of(1L)).orElseThrow();
+        assertEquals(2, updated.getVersion());
+
+        assertThrows(VersionConflictException.class, () -> userService.updateUser(created.getId(),
+                new User(null, "versioned", "versioned@example.com", "V3"), Set.of(1L)));
+        assertThrows(VersionConflictException.class, () -> userService.deleteUser(created.getId(), Set.of(1L)));
+        assertEquals("V2", userService.getUserById(created.getId()).orElseThrow().getFullName());
+
+        storeVersion = userService.getStoreVersion();
+        assertTrue(userService.deleteUser(created.getId(), Set.of(1L, 2L)));
+        assertNotEquals(storeVersion, userService.getStoreVersion());
+    }
+
+    @Test
+    public void testIfMatchAcceptsAnyListedVersion() {
+        String epoch = userService.getEpoch();
+        User created = userService.createUser(new User(null, "tagged", "tagged@example.com", "T"));
+        long id = created.getId();
+        userService.updateUser(id, new User(null, "tagged", "tagged@example.com", "T2"));
+
+        // A stale tag listed first must not hide the current one after it
+        String header = "\"" + epoch + "-" + id + "-1\", \"" + epoch + "-" + (id + 1) + "-2\", \""
+                + epoch + "-" + id + "-2-gzip\"";
+        UserResource.IfMatch condition = UserResource.IfMatch.parse(header, epoch, id);
+        assertFalse(condition.unsatisfiable);
+        assertEquals(Set.of(1L, 2L), condition.versions);
+        assertEquals("T3", userService.updateUser(id, new User(null, "tagged", "tagged@example.com", "T3"),
+                condition.versions).orElseThrow().getFullName());
+
+        // Only tags of other users or of an earlier epoch can never match
+        assertTrue(UserResource.IfMatch.parse("\"" + epoch + "-" + (id + 1) + "-3\", \"old-" + id + "-3\"",
+                epoch, id).unsatisfiable);
+        assertNull(UserResource.IfMatch.parse("\"" + epoch + "-" + id + "-1\", *", epoch, id).versions);
+    }
+
+    @Test
+    public void testAsyncModeRunsOperationsOnVirtualThreads() throws Exception {
+        UserService async = new UserService(true);
+        assertTrue(async.async(() -> Thread.currentThread().isVirtual()).toCompletableFuture().get());
+        User created = async.async(() -> async.createUser(new User(null, "async", "async@example.com", "Async")))
+                .toCompletableFuture().get();
+        assertEquals("async", async.getUserById(created.getId()).get().getUsername());
+
+        // Off, the operation runs on the caller's thread before async() returns
+        assertFalse(userService.async(() -> Thread.currentThread().isVirtual()).toCompletableFuture().getNow(true));
+    }
+
+    @Test
+    public void testSearchByPrefixAcrossFields() {
+        User johnny = userService.createUser(new User(null, "johnny", "jb@example.com", "Johnny Bravo"));
+        User smith = userService.createUser(new User(null, "agent", "agent@example.com", "Agent Smith"));
+
+        // Usernames rank before full names, and alphabetically within a field
+        assertEquals(List.of("john_doe", "johnny"), usernames(userService.search("JOHN", 10)));
+        assertEquals(List.of("john_doe"), usernames(userService.search("john", 1)));
+        assertEquals(List.of("jane_smith", "agent"), usernames(userService.search("smi", 10)));
+        assertEquals(List.of("agent"), usernames(userService.search("agent smith", 10)));
+        assertEquals(List.of("bob_wilson"), usernames(userService.search("bob@", 10)));
+        assertTrue(userService.search("   ", 10).isEmpty());
+
+        // One typo away still finds the user once there are four characters to go on
+        assertEquals(List.of("johnny"), usernames(userService.search("jonhny", 10)));
+        assertTrue(userService.search("xyz", 10).isEmpty());
+
+        userService.updateUser(johnny.getId(), new User(null, "johnny", "jb@example.com", "Johnny Cash"));
+        assertTrue(userService.search("bravo", 10).isEmpty());
+        assertEquals(List.of("johnny"), usernames(userService.search("cash", 10)));
+
+        userService.deleteUser(smith.getId());
+        assertEquals(List.of("jane_smith"), usernames(userService.search("smith", 10)));
+
+        // Only the first words of a long name are indexed, each cut to a bounded length
+        String longWord = "w".repeat(100);
+        userService.createUser(new User(null, "wordy", "wordy@example.com",
+                "one two three four five six seven eight nine " + longWord));
+        assertEquals(List.of("wordy"), usernames(userService.search("eight", 10)));
+        assertTrue(userService.search("nine", 10).isEmpty());
+        assertEquals(List.of("wordy"), usernames(userService.search("one two three four five six seven eight nine", 10)));
+        userService.createUser(new User(null, "long", "long@example.com", longWord));
+        assertEquals(List.of("long"), usernames(userService.search(longWord + "x", 10)));
+    }
+
+    private static List<String> usernames(List<User> users) {
+        return users.stream().map(User::getUsername).toList();
     }
-}
\ No newline at end of file
+}
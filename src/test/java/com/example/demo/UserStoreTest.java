@@ -0,0 +1,180 @@
+package com.example.demo;
+
+import com.example.demo.model.User;
+import com.example.demo.store.HeapUserStore;
+import com.example.demo.store.IdBlocks;
+import com.example.demo.store.OffHeapUserStore;
+import com.example.demo.store.ShardedUserStore;
+import com.example.demo.store.UserStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "offheap", "mapped"})
+    public void testComputeGetAndIterate(String type) throws IOException {
+        UserStore store = create(type);
+        try {
+            for (long id = 1; id <= 5; id++) {
+                User user = new User(id, "user" + id, "user" + id + "@example.com", "User " + id);
+                store.compute(id, existing -> user, (previous, next) -> assertNull(previous));
+            }
+            store.compute(2L, existing -> new User(2L, "renamed", existing.getEmail(), null), (previous, next) -> {
+                assertEquals("user2", previous.getUsername());
+                assertEquals("renamed", next.getUsername());
+            });
+            store.compute(4L, existing -> null, (previous, next) -> assertNotNull(previous));
+
+            assertEquals(4, store.size());
+            assertEquals("renamed", store.get(2L).getUsername());
+            assertNull(store.get(2L).getFullName());
+            assertNull(store.get(4L));
+            assertEquals(List.of(1L, 2L, 3L, 5L), ids(store.after(null)));
+            assertEquals(List.of(3L, 5L), ids(store.after(2L)));
+        } finally {
+            close(store);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "offheap", "mapped"})
+    public void testRollsBackWhenOnAppliedFails(String type) throws IOException {
+        UserStore store = create(type);
+        try {
+            store.compute(1L, existing -> new User(1L, "one", "one@example.com", "One"), (previous, next) -> { });
+
+            assertThrows(IllegalStateException.class, () -> store.compute(1L,
+                    existing -> new User(1L, "changed", "one@example.com", "One"),
+                    (previous, next) -> { throw new IllegalStateException("log failed"); }));
+            assertThrows(IllegalStateException.class, () -> store.compute(2L,
+                    existing -> new User(2L, "two", "two@example.com", "Two"),
+                    (previous, next) -> { throw new IllegalStateException("log failed"); }));
+
+            assertEquals("one", store.get(1L).getUsername());
+            assertNull(store.get(2L));
+            assertEquals(List.of(1L), ids(store.after(null)));
+        } finally {
+            close(store);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"offheap", "mapped"})
+    public void testCompactsAfterManyUpdates(String type) throws IOException {
+        // Small chunks force several compactions while the records keep being rewritten
+        UserStore store = create(type);
+        try {
+            for (int round = 0; round < 50; round++) {
+                for (long i = 1; i <= 100; i++) {
+                    long id = i;
+                    String name = "user" + id + "_" + round;
+                    store.compute(id, existing -> new User(id, name, name + "@example.com", null), (previous, next) -> { });
+                }
+            }
+            assertEquals(100, store.size());
+            assertEquals("user42_49", store.get(42L).getUsername());
+            assertTrue(store.estimatedFootprintBytes() < 16 * 4096);
+        } finally {
+            close(store);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "offheap"})
+    public void testShardedStoreHandsOutUniqueIdsFromConcurrentWriters(String type) throws Exception {
+        ShardedUserStore store = new ShardedUserStore(4, (shard, blocks) -> createShard(type, shard, blocks));
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int writer = 0; writer < 8; writer++) {
+                done.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        long id = store.nextId();
+                        store.compute(id, existing -> {
+                            assertNull(existing);
+                            return new User(id, "user" + id, "user" + id + "@example.com", null);
+                        }, (previous, next) -> { });
+                    }
+                }, writers));
+            }
+            CompletableFuture.allOf(done.toArray(CompletableFuture<?>[]::new)).get();
+
+            List<Long> ids = ids(store.after(null));
+            assertEquals(4000, store.size());
+            assertEquals(4000, new HashSet<>(ids).size());
+            assertEquals(ids.stream().sorted().toList(), ids);
+            assertEquals(ids.subList(1000, 4000), ids(store.after(ids.get(999))));
+            assertTrue(store.getIdHighWater() >= ids.get(3999));
+        } finally {
+            writers.shutdownNow();
+            store.close();
+        }
+    }
+
+    @Test
+    public void testShardedStoreSkipsAdvancedIds() throws IOException {
+        ShardedUserStore store = new ShardedUserStore(3, (shard, blocks) -> new HeapUserStore());
+        store.advanceIds(1000);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            long id = store.nextId();
+            assertTrue(id > 1000);
+            assertTrue(ids.add(id));
+        }
+        assertTrue(store.getIdHighWater() >= 1000);
+
+        store.clear();
+        assertEquals(0, store.getIdHighWater());
+        assertEquals(1, new ShardedUserStore(1, (shard, blocks) -> new HeapUserStore()).nextId());
+    }
+
+    private UserStore createShard(String type, int shard, IdBlocks blocks) {
+        try {
+            return "offheap".equals(type) ? new OffHeapUserStore(null, 4096, blocks, shard) : new HeapUserStore();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private UserStore create(String type) throws IOException {
+        switch (type) {
+            case "offheap":
+                return new OffHeapUserStore(null, 4096);
+            case "mapped":
+                return new OffHeapUserStore(directory.resolve("users.store"), 4096);
+            default:
+                return new HeapUserStore();
+        }
+    }
+
+    private static List<Long> ids(Iterable<User> users) {
+        List<Long> ids = new ArrayList<>();
+        users.forEach(user -> ids.add(user.getId()));
+        return ids;
+    }
+
+    private static void close(UserStore store) throws IOException {
+        if (store instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}